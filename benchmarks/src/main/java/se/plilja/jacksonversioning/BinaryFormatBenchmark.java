@@ -0,0 +1,95 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Serialization and deserialization of the test model in JSON compared to the binary Smile and CBOR formats.
+ * The payload size of each format is printed when setting up a trial.
+ */
+@State(Scope.Thread)
+public class BinaryFormatBenchmark {
+    public enum Format {
+        JSON(JsonFactory::new),
+        SMILE(SmileFactory::new),
+        CBOR(CBORFactory::new);
+
+        private final Supplier<JsonFactory> jsonFactory;
+
+        Format(Supplier<JsonFactory> jsonFactory) {
+            this.jsonFactory = jsonFactory;
+        }
+    }
+
+    @Param({"JSON", "SMILE", "CBOR"})
+    public Format format;
+
+    @Param({"V1", "V3"})
+    public ApiVersion version;
+
+    @Param({"1000"})
+    public int size;
+
+    private ObjectMapper versioningObjectMapper;
+    private List<Car> cars;
+    private byte[] carsPayload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        versioningObjectMapper = Fixtures.versioningObjectMapper(format.jsonFactory.get());
+        cars = Fixtures.cars(size);
+        Fixtures.bindRequest(version);
+        carsPayload = versioningObjectMapper.writeValueAsBytes(cars);
+        System.out.printf("%n%s payload of %d cars in version %s: %d bytes%n", format, size, version, carsPayload.length);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public byte[] serializeCars() throws Exception {
+        return versioningObjectMapper.writeValueAsBytes(cars);
+    }
+
+    @Benchmark
+    public Car[] deserializeCars() throws Exception {
+        return versioningObjectMapper.readValue(carsPayload, Car[].class);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class Fixtures {
+    static final String VERSION_NAME = "API_VERSION";
+
+    private Fixtures() {
+        // should not be instantiated
+    }
+
+    static ObjectMapper versioningObjectMapper() {
+        return versioningObjectMapper(new JsonFactory());
+    }
+
+    static ObjectMapper versioningObjectMapper(JsonFactory jsonFactory) {
+        VersioningModule versioningModule = SpringVersioningModuleBuilder.withEnumVersions(ApiVersion.class)
+                .withVersionDeterminedByRequestHeader(VERSION_NAME)
+                .withConvertersCreatedByReflection()
+                .build();
+        return new ObjectMapper(jsonFactory).registerModule(versioningModule);
+    }
+
+    static MockHttpServletRequest bindRequest(ApiVersion version) {
+        MockHttpServletRequest request = request(version);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        return request;
+    }
+
+    static MockHttpServletRequest request(ApiVersion version) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(VERSION_NAME, version.name());
+        request.addParameter(VERSION_NAME, version.name());
+        return request;
+    }
+
+    static Car car(int id) {
+        Person owner = new Person();
+        owner.setFirstName("Sten");
+        owner.setLastName("Frisk");
+        owner.setSocialSecurityNumber("1234567890");
+        Car car = new Car();
+        car.setId(id);
+        car.setOwner(owner);
+        car.setMake("Toyota");
+        car.setModel("Camry");
+        car.setYearMade(2020);
+        return car;
+    }
+
+    static List<Car> cars(int size) {
+        List<Car> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(car(i));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.List;
+
+/**
+ * Serialization and deserialization of the test model at each version, compared to a plain object mapper.
+ * Each trial runs within a single request, so version resolution is cached after the first invocation.
+ */
+@State(Scope.Thread)
+public class SerializationBenchmark {
+    @Param({"V1", "V2", "V3"})
+    public ApiVersion version;
+
+    @Param({"1", "1000"})
+    public int size;
+
+    private ObjectMapper versioningObjectMapper;
+    private ObjectMapper plainObjectMapper;
+    private Car car;
+    private List<Car> cars;
+    private byte[] carJson;
+    private byte[] plainCarJson;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        versioningObjectMapper = Fixtures.versioningObjectMapper();
+        plainObjectMapper = new ObjectMapper();
+        car = Fixtures.car(1);
+        cars = Fixtures.cars(size);
+        Fixtures.bindRequest(version);
+        carJson = versioningObjectMapper.writeValueAsBytes(car);
+        plainCarJson = plainObjectMapper.writeValueAsBytes(car);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public byte[] serializeCar() throws Exception {
+        return versioningObjectMapper.writeValueAsBytes(car);
+    }
+
+    @Benchmark
+    public byte[] serializeCars() throws Exception {
+        return versioningObjectMapper.writeValueAsBytes(cars);
+    }
+
+    @Benchmark
+    public Car deserializeCar() throws Exception {
+        return versioningObjectMapper.readValue(carJson, Car.class);
+    }
+
+    @Benchmark
+    public byte[] baselineSerializeCar() throws Exception {
+        return plainObjectMapper.writeValueAsBytes(car);
+    }
+
+    @Benchmark
+    public byte[] baselineSerializeCars() throws Exception {
+        return plainObjectMapper.writeValueAsBytes(cars);
+    }
+
+    @Benchmark
+    public Car baselineDeserializeCar() throws Exception {
+        return plainObjectMapper.readValue(plainCarJson, Car.class);
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of resolving the version through each strategy, both for the first lookup in a request
+ * and for the following lookups that hit the per request cache.
+ */
+@State(Scope.Thread)
+public class VersionResolutionBenchmark {
+    /**
+     * Requests resolved per iteration of the first resolution benchmark, each of them only once.
+     */
+    static final int BATCH_SIZE = 10_000;
+
+    @Param({"V1", "V3"})
+    public ApiVersion version;
+
+    private VersionLookupTable<ApiVersion> versionLookupTable;
+
+    @Setup(Level.Trial)
+    public void setUpLookupTable() {
+        versionLookupTable = VersionLookupTable.forEnum(ApiVersion.class, false);
+    }
+
+    @State(Scope.Thread)
+    public static class StrategyState {
+        @Param({"header", "parameter"})
+        public String strategy;
+
+        private VersionResolutionStrategy<ApiVersion> versionResolutionStrategy;
+
+        @Setup(Level.Trial)
+        public void setUpStrategy(VersionResolutionBenchmark benchmark) {
+            if ("header".equals(strategy)) {
+                versionResolutionStrategy = new RequestHeaderVersionResolutionStrategy<>(Fixtures.VERSION_NAME, benchmark.versionLookupTable, VersioningMetrics.NOOP);
+            } else {
+                versionResolutionStrategy = new RequestParameterVersionResolutionStrategy<>(Fixtures.VERSION_NAME, benchmark.versionLookupTable, VersioningMetrics.NOOP);
+            }
+        }
+    }
+
+    /**
+     * A batch of distinct requests whose versions have not been resolved yet, created before every iteration
+     * so that no fixtures run between the timed invocations.
+     */
+    @State(Scope.Thread)
+    public static class UnresolvedRequests {
+        private final ServletRequestAttributes[] requests = new ServletRequestAttributes[BATCH_SIZE];
+        private int next;
+
+        @Setup(Level.Iteration)
+        public void setUpRequests(VersionResolutionBenchmark benchmark) {
+            for (int i = 0; i < requests.length; i++) {
+                requests[i] = new ServletRequestAttributes(Fixtures.request(benchmark.version));
+            }
+            next = 0;
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDownRequests() {
+            RequestContextHolder.resetRequestAttributes();
+        }
+
+        ServletRequestAttributes next() {
+            if (next == requests.length) {
+                throw new IllegalStateException("Batch of unresolved requests exhausted, run with a batch size of at most " + BATCH_SIZE);
+            }
+            return requests[next++];
+        }
+    }
+
+    /**
+     * A request bound for the whole iteration, whose version has already been resolved once.
+     */
+    @State(Scope.Thread)
+    public static class ResolvedRequest {
+        @Setup(Level.Iteration)
+        public void setUpRequest(VersionResolutionBenchmark benchmark, StrategyState strategy) {
+            Fixtures.bindRequest(benchmark.version);
+            strategy.versionResolutionStrategy.getSerializeToVersion(null);
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDownRequest() {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+
+    /**
+     * Includes binding the request to the thread, which is a thread local write.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(batchSize = BATCH_SIZE)
+    @Measurement(batchSize = BATCH_SIZE)
+    public ApiVersion firstResolutionInRequest(StrategyState strategy, UnresolvedRequests requests) {
+        RequestContextHolder.setRequestAttributes(requests.next());
+        return strategy.versionResolutionStrategy.getSerializeToVersion(null);
+    }
+
+    @Benchmark
+    public ApiVersion repeatedResolutionInRequest(StrategyState strategy, ResolvedRequest request) {
+        return strategy.versionResolutionStrategy.getSerializeToVersion(null);
+    }
+
+    @Benchmark
+    public ApiVersion lookup() {
+        return versionLookupTable.lookup(version.name());
+    }
+
+    @Benchmark
+    public ApiVersion lookupUnknown() {
+        return versionLookupTable.lookup("UNKNOWN");
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Base class for strategies that determine the version from the current servlet request.
+ *
+ * The version is resolved the first time it is asked for during a request and then kept
+ * in a request attribute, so that serializing a large object graph only parses it once.
+ * A rejected version is kept as well, so that it is only reported once.
+ *
+ * The attributes share a common prefix, so that {@link VersionContext#capture()} can copy the versions
+ * resolved so far without knowing the strategies in use.
+ */
+abstract class AbstractRequestVersionResolutionStrategy<V extends Comparable<V>> implements VersionResolutionStrategy<V> {
+    static final String ATTRIBUTE_PREFIX = AbstractRequestVersionResolutionStrategy.class.getName() + ".";
+
+    private final String attributeName;
+    private final VersioningMetrics versioningMetrics;
+
+    AbstractRequestVersionResolutionStrategy(String attributeName, VersioningMetrics versioningMetrics) {
+        this.attributeName = ATTRIBUTE_PREFIX + attributeName;
+        this.versioningMetrics = versioningMetrics;
+    }
+
+    @Override
+    public V getSerializeToVersion(ObjectNode object) {
+        return getVersion();
+    }
+
+    @Override
+    public V getDeserializeToVersion(ObjectNode object) {
+        return getVersion();
+    }
+
+    abstract V resolveVersion(HttpServletRequest request);
+
+    @SuppressWarnings("unchecked")
+    private V getVersion() {
+        Object version = VersionContext.currentVersion();
+        if (version == null) {
+            version = VersionContext.currentResolvedVersion(attributeName);
+        }
+        if (version instanceof ResponseStatusException) {
+            throw (ResponseStatusException) version;
+        } else if (version != null) {
+            return (V) version;
+        }
+        RequestAttributes requestAttributes = VersionContext.currentRequestAttributes();
+        if (requestAttributes instanceof ServletRequestAttributes) {
+            Object cached = requestAttributes.getAttribute(attributeName, RequestAttributes.SCOPE_REQUEST);
+            if (cached instanceof ResponseStatusException) {
+                throw (ResponseStatusException) cached;
+            } else if (cached != null) {
+                return (V) cached;
+            }
+            V result;
+            try {
+                result = resolveVersion(((ServletRequestAttributes) requestAttributes).getRequest());
+            } catch (ResponseStatusException e) {
+                versioningMetrics.versionRejected(e instanceof UnknownApiVersionException ? "unknown" : "missing");
+                requestAttributes.setAttribute(attributeName, e, RequestAttributes.SCOPE_REQUEST);
+                throw e;
+            }
+            versioningMetrics.versionResolved(result);
+            requestAttributes.setAttribute(attributeName, result, RequestAttributes.SCOPE_REQUEST);
+            return result;
+        } else {
+            return null;
+        }
+    }
+}
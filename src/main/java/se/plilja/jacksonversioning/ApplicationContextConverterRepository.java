@@ -24,6 +24,10 @@ package se.plilja.jacksonversioning;
 
 import org.springframework.context.ApplicationContext;
 
+/**
+ * Gets converters from the application context on every lookup, so that prototype and request scoped
+ * converter beans are honoured. Singleton beans are cheap to look up and need no cache of their own.
+ */
 class ApplicationContextConverterRepository<V> implements VersionedConverterRepository<V> {
     private final ApplicationContext applicationContext;
 
@@ -35,4 +39,12 @@ class ApplicationContextConverterRepository<V> implements VersionedConverterRepo
     public VersionConverter<V> get(Class<? extends VersionConverter<V>> converterClass) {
         return applicationContext.getBean(converterClass);
     }
+
+    /**
+     * Whether every lookup of the converter returns the same singleton bean, only then may the converter be kept.
+     */
+    boolean isSingleton(Class<?> converterClass) {
+        String[] beanNames = applicationContext.getBeanNamesForType(converterClass);
+        return beanNames.length == 1 && applicationContext.isSingleton(beanNames[0]);
+    }
 }
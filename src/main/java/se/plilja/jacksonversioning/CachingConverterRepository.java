@@ -0,0 +1,47 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the converters of a repository that creates a new converter on every lookup, such as the reflection based one.
+ */
+class CachingConverterRepository<V> implements VersionedConverterRepository<V> {
+    private final ConcurrentMap<Class<?>, VersionConverter<V>> converters = new ConcurrentHashMap<>();
+    private final VersionedConverterRepository<V> delegate;
+
+    CachingConverterRepository(VersionedConverterRepository<V> delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public VersionConverter<V> get(Class<? extends VersionConverter<V>> converterClass) {
+        VersionConverter<V> converter = converters.get(converterClass);
+        if (converter == null) {
+            converter = converters.computeIfAbsent(converterClass, c -> delegate.get(converterClass));
+        }
+        return converter;
+    }
+}
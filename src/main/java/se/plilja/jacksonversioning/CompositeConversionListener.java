@@ -0,0 +1,47 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import java.util.List;
+
+class CompositeConversionListener implements ConversionListener {
+    private final ConversionListener[] conversionListeners;
+
+    CompositeConversionListener(List<ConversionListener> conversionListeners) {
+        this.conversionListeners = conversionListeners.toArray(new ConversionListener[0]);
+    }
+
+    @Override
+    public void conversionStarted(Class<?> type, Object fromVersion, Object toVersion) {
+        for (ConversionListener conversionListener : conversionListeners) {
+            conversionListener.conversionStarted(type, fromVersion, toVersion);
+        }
+    }
+
+    @Override
+    public void conversionFinished(Class<?> type, Object fromVersion, Object toVersion, long nanos) {
+        for (ConversionListener conversionListener : conversionListeners) {
+            conversionListener.conversionFinished(type, fromVersion, toVersion, nanos);
+        }
+    }
+}
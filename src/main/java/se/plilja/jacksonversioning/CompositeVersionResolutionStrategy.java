@@ -0,0 +1,77 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Tries a list of {@link VersionSource}s in order and uses the first one that has a version.
+ * Like the other request strategies the result is kept for the rest of the request, so each
+ * source is consulted at most once per request.
+ */
+class CompositeVersionResolutionStrategy<V extends Comparable<V>> extends AbstractRequestVersionResolutionStrategy<V> implements VaryingVersionResolutionStrategy {
+    private final VersionSource[] versionSources;
+    private final VersionLookupTable<V> versionLookupTable;
+    private final String missingVersionMessage;
+
+    CompositeVersionResolutionStrategy(List<VersionSource> versionSources, VersionLookupTable<V> versionLookupTable, VersioningMetrics versioningMetrics) {
+        super(CompositeVersionResolutionStrategy.class.getSimpleName() + "." + versionSources, versioningMetrics);
+        if (versionSources.isEmpty()) {
+            throw new IllegalArgumentException("At least one version source must be given");
+        }
+        for (VersionSource versionSource : versionSources) {
+            versionSource.validate(versionLookupTable);
+        }
+        this.versionSources = versionSources.toArray(new VersionSource[0]);
+        this.versionLookupTable = versionLookupTable;
+        this.missingVersionMessage = String.format("Missing API version, expected in %s",
+                versionSources.stream().map(VersionSource::toString).collect(Collectors.joining(", ")));
+    }
+
+    @Override
+    public List<String> getVaryHeaders() {
+        return Arrays.stream(versionSources)
+                .map(VersionSource::headerName)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    V resolveVersion(HttpServletRequest request) {
+        for (VersionSource versionSource : versionSources) {
+            V result = versionSource.resolve(request, versionLookupTable);
+            if (result != null) {
+                return result;
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, missingVersionMessage);
+    }
+}
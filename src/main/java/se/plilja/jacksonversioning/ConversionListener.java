@@ -0,0 +1,46 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+/**
+ * Receives an event before and after every request or response body converted by
+ * {@link VersioningHttpMessageConverter}, see
+ * {@link SpringVersioningModuleBuilder.ReadyForBuilding#withConversionListener(ConversionListener)}.
+ *
+ * Listeners are called on the thread doing the conversion and should return quickly.
+ */
+public interface ConversionListener {
+
+    /**
+     * Called before a body of the given class is converted.
+     */
+    default void conversionStarted(Class<?> type, Object fromVersion, Object toVersion) {
+    }
+
+    /**
+     * Called after a body of the given class has been converted, also when the versions are the same
+     * and the conversion amounted to plain serialization or deserialization.
+     */
+    default void conversionFinished(Class<?> type, Object fromVersion, Object toVersion, long nanos) {
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Converts a synthetic instance of every versioned class to and from every version when building, see
+ * {@link SpringVersioningModuleBuilder.ReadyForBuilding#withWarmUp(int)}.
+ *
+ * Converting each class to every version and back checks that the converters can handle every version,
+ * and leaves serializers and deserializers for them in the caches of the object mappers. Repeating the
+ * round trips gives the JIT compiler a chance to compile the conversion code before the first request.
+ */
+final class ConverterWarmUp {
+    private ConverterWarmUp() {
+        // should not be instantiated
+    }
+
+    static void warmUp(Collection<Class<?>> versionedClasses, ObjectMapper latestObjectMapper, Map<?, ObjectMapper> versionObjectMappers, int iterations) {
+        for (Class<?> versionedClass : versionedClasses) {
+            Object instance = syntheticInstance(versionedClass, latestObjectMapper);
+            if (instance == null) {
+                continue;
+            }
+            for (Map.Entry<?, ObjectMapper> entry : versionObjectMappers.entrySet()) {
+                ObjectWriter writer = entry.getValue().writerFor(versionedClass);
+                ObjectReader reader = entry.getValue().readerFor(versionedClass);
+                try {
+                    for (int i = 0; i < iterations; i++) {
+                        reader.readValue(writer.writeValueAsBytes(instance));
+                    }
+                } catch (IOException | RuntimeException e) {
+                    throw new IllegalStateException(String.format("Unable to convert %s to and from version %s", versionedClass.getName(), entry.getKey()), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * An instance with every property left at its default, or null for classes Jackson can not create that way.
+     */
+    private static Object syntheticInstance(Class<?> versionedClass, ObjectMapper latestObjectMapper) {
+        try {
+            return latestObjectMapper.readerFor(versionedClass).readValue("{}");
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
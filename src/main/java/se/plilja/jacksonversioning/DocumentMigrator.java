@@ -0,0 +1,212 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Converts stored JSON documents between versions outside of any request, for example to migrate
+ * webhook payloads or audit logs kept on disk. Create instances through {@link SpringVersioningModuleBuilder}.
+ *
+ * Newline delimited files are converted in chunks of lines on all cores. Chunks are written in the order
+ * they were read and only a few chunks per thread are in flight at any time, so memory use is bounded
+ * regardless of the size of the file.
+ */
+public final class DocumentMigrator {
+    static final int CHUNK_SIZE = 1024;
+
+    private final VersionLookupTable<?> versionLookupTable;
+    private final Function<Object, ObjectMapper> objectMapperFactory;
+    private final ConcurrentMap<Object, ObjectMapper> objectMappers = new ConcurrentHashMap<>();
+    private final int parallelism;
+
+    DocumentMigrator(VersionLookupTable<?> versionLookupTable, Function<Object, ObjectMapper> objectMapperFactory, int parallelism) {
+        this.versionLookupTable = versionLookupTable;
+        this.objectMapperFactory = objectMapperFactory;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * A migrator converting newline delimited files on the given number of threads.
+     */
+    public DocumentMigrator withParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        return new DocumentMigrator(versionLookupTable, objectMapperFactory, parallelism);
+    }
+
+    /**
+     * Converts a single document of the given type from one version to another.
+     */
+    public String migrate(String json, Class<?> type, String fromVersion, String toVersion) throws IOException {
+        return new String(converter(type, fromVersion, toVersion).convert(json), StandardCharsets.UTF_8);
+    }
+
+    public MigrationStatistics migrateNdjson(Path source, Path target, Class<?> type, String fromVersion, String toVersion,
+                                             Consumer<MigrationStatistics> progressListener) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(source);
+             OutputStream outputStream = Files.newOutputStream(target)) {
+            return migrateNdjson(inputStream, outputStream, type, fromVersion, toVersion, progressListener);
+        }
+    }
+
+    /**
+     * Converts newline delimited JSON, one document of the given type per line, from one version to another.
+     * The progress listener is called on the calling thread after every written chunk.
+     */
+    public MigrationStatistics migrateNdjson(InputStream source, OutputStream target, Class<?> type, String fromVersion, String toVersion,
+                                             Consumer<MigrationStatistics> progressListener) throws IOException {
+        Converter converter = converter(type, fromVersion, toVersion);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(source, StandardCharsets.UTF_8), 1 << 16);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "document-migrator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long start = System.nanoTime();
+        long documents = 0;
+        long bytes = 0;
+        try {
+            Deque<Future<byte[]>> inFlight = new ArrayDeque<>();
+            Deque<Integer> inFlightDocuments = new ArrayDeque<>();
+            List<String> chunk = new ArrayList<>(CHUNK_SIZE);
+            int chunkDocuments = 0;
+            long lineNumber = 1;
+            String line;
+            do {
+                line = reader.readLine();
+                if (line != null) {
+                    chunk.add(line);
+                    if (!line.trim().isEmpty()) {
+                        chunkDocuments++;
+                    }
+                }
+                if (chunk.size() == CHUNK_SIZE || (line == null && !chunk.isEmpty())) {
+                    List<String> lines = chunk;
+                    long firstLine = lineNumber;
+                    inFlight.add(executor.submit(() -> converter.convertLines(lines, firstLine)));
+                    inFlightDocuments.add(chunkDocuments);
+                    lineNumber += lines.size();
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                    chunkDocuments = 0;
+                }
+                while (!inFlight.isEmpty() && (line == null || inFlight.size() >= 2 * parallelism)) {
+                    byte[] converted = await(inFlight.poll());
+                    target.write(converted);
+                    documents += inFlightDocuments.poll();
+                    bytes += converted.length;
+                    if (progressListener != null) {
+                        progressListener.accept(new MigrationStatistics(documents, bytes, System.nanoTime() - start));
+                    }
+                }
+            } while (line != null);
+            target.flush();
+        } finally {
+            executor.shutdownNow();
+        }
+        return new MigrationStatistics(documents, bytes, System.nanoTime() - start);
+    }
+
+    private static byte[] await(Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while migrating documents", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private Converter converter(Class<?> type, String fromVersion, String toVersion) {
+        return new Converter(objectMapper(fromVersion).readerFor(type), objectMapper(toVersion).writerFor(type));
+    }
+
+    private ObjectMapper objectMapper(String version) {
+        Object result = versionLookupTable.lookup(version);
+        if (result == null) {
+            throw new IllegalArgumentException(String.format("Unknown version %s", version));
+        }
+        return objectMappers.computeIfAbsent(result, objectMapperFactory);
+    }
+
+    private static final class Converter {
+        private final ObjectReader reader;
+        private final ObjectWriter writer;
+
+        Converter(ObjectReader reader, ObjectWriter writer) {
+            this.reader = reader;
+            this.writer = writer;
+        }
+
+        byte[] convert(String json) throws IOException {
+            return writer.writeValueAsBytes(reader.readValue(json));
+        }
+
+        byte[] convertLines(List<String> lines, long firstLine) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(lines.size() * 256);
+            for (int i = 0; i < lines.size(); i++) {
+                String line = lines.get(i);
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                try {
+                    writer.writeValue(out, reader.readValue(line));
+                } catch (IOException | UncheckedIOException e) {
+                    throw new IOException(String.format("Failed to migrate document on line %d", firstLine + i), e);
+                }
+                out.write('\n');
+            }
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Command line entry point for {@link DocumentMigrator}, for versions given as an enum and converters
+ * created by reflection. Run with the application classes on the class path:
+ *
+ * <pre>
+ * java -cp app.jar:... se.plilja.jacksonversioning.DocumentMigratorCli \
+ *     --versions com.acme.ApiVersion --type com.acme.Car --from V1 --to V3 [--parallelism 8] in.ndjson out.ndjson
+ * </pre>
+ */
+public final class DocumentMigratorCli {
+    private DocumentMigratorCli() {
+        // should not be instantiated
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        String[] files = new String[2];
+        int fileCount = 0;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].startsWith("--") && i + 1 < args.length) {
+                options.put(args[i].substring(2), args[++i]);
+            } else if (fileCount < files.length) {
+                files[fileCount++] = args[i];
+            } else {
+                usage();
+            }
+        }
+        if (fileCount != 2 || !options.keySet().containsAll(Arrays.asList("versions", "type", "from", "to"))) {
+            usage();
+        }
+        DocumentMigrator documentMigrator = buildDocumentMigrator(Class.forName(options.get("versions")));
+        if (options.containsKey("parallelism")) {
+            documentMigrator = documentMigrator.withParallelism(Integer.parseInt(options.get("parallelism")));
+        }
+        Path source = Paths.get(files[0]);
+        Path target = Paths.get(files[1]);
+        long[] lastReport = {System.nanoTime()};
+        MigrationStatistics statistics = documentMigrator.migrateNdjson(source, target, Class.forName(options.get("type")),
+                options.get("from"), options.get("to"), progress -> {
+                    long now = System.nanoTime();
+                    if (now - lastReport[0] > 1_000_000_000L) {
+                        lastReport[0] = now;
+                        System.err.println(progress);
+                    }
+                });
+        System.err.println(statistics);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static DocumentMigrator buildDocumentMigrator(Class<?> versions) {
+        if (!versions.isEnum()) {
+            throw new IllegalArgumentException(String.format("%s is not an enum", versions.getName()));
+        }
+        return SpringVersioningModuleBuilder.withEnumVersions((Class) versions)
+                .withVersionDeterminedByVersionContext()
+                .withConvertersCreatedByReflection()
+                .buildDocumentMigrator(new ObjectMapper());
+    }
+
+    private static void usage() {
+        System.err.println("Usage: DocumentMigratorCli --versions <version enum> --type <document class> --from <version> --to <version> "
+                + "[--parallelism <threads>] <source ndjson> <target ndjson>");
+        System.exit(2);
+    }
+}
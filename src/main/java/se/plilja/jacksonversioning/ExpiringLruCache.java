@@ -0,0 +1,163 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded least recently used cache whose entries may also expire a fixed time after they were written.
+ * Expired entries are dropped when they are next looked up or when they are evicted as least recently used.
+ *
+ * Lookups take no lock, they only stamp the entry with an increasing access counter. When an insert takes
+ * the cache over its maximum size, the entry with the oldest stamp is found by scanning the entries, which
+ * suits the few hundred to few thousand entries the caches of this library hold.
+ */
+final class ExpiringLruCache<K, V> {
+    private static final long NEVER = Long.MAX_VALUE;
+
+    private final int maximumSize;
+    private final long timeToLiveNanos;
+    private final LongSupplier nanoTime;
+    private final ConcurrentMap<K, CacheEntry<V>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong accessCounter = new AtomicLong();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    /**
+     * A cache whose entries do not expire.
+     */
+    ExpiringLruCache(int maximumSize) {
+        this(maximumSize, NEVER, () -> 0);
+    }
+
+    ExpiringLruCache(int maximumSize, long timeToLiveNanos, LongSupplier nanoTime) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Maximum size must be at least 1");
+        }
+        this.maximumSize = maximumSize;
+        this.timeToLiveNanos = timeToLiveNanos;
+        this.nanoTime = nanoTime;
+    }
+
+    V get(K key) {
+        CacheEntry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (isExpired(entry)) {
+            entries.remove(key, entry);
+            return null;
+        }
+        entry.lastAccess = accessCounter.incrementAndGet();
+        return entry.value;
+    }
+
+    void put(K key, V value) {
+        CacheEntry<V> entry = newEntry(value);
+        if (entries.put(key, entry) == null) {
+            evictIfFull();
+        }
+    }
+
+    /**
+     * Returns the cached value of the key, computing and caching it if absent. Concurrent callers missing
+     * the same key wait for a single computation.
+     */
+    V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        boolean[] computed = new boolean[1];
+        CacheEntry<V> entry = entries.compute(key, (k, existing) -> {
+            if (existing != null && !isExpired(existing)) {
+                return existing;
+            }
+            computed[0] = true;
+            V computedValue = mappingFunction.apply(k);
+            return computedValue == null ? null : newEntry(computedValue);
+        });
+        if (entry == null) {
+            return null;
+        } else if (computed[0]) {
+            evictIfFull();
+        } else {
+            entry.lastAccess = accessCounter.incrementAndGet();
+        }
+        return entry.value;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private CacheEntry<V> newEntry(V value) {
+        return new CacheEntry<>(value, timeToLiveNanos == NEVER ? 0 : nanoTime.getAsLong(), accessCounter.incrementAndGet());
+    }
+
+    private boolean isExpired(CacheEntry<V> entry) {
+        return timeToLiveNanos != NEVER && nanoTime.getAsLong() - entry.writtenAt >= timeToLiveNanos;
+    }
+
+    private void evictIfFull() {
+        // A single thread evicts at a time, the others carry on and leave the cache to it
+        while (entries.size() > maximumSize && evicting.compareAndSet(false, true)) {
+            try {
+                evictLeastRecentlyUsed();
+            } finally {
+                evicting.set(false);
+            }
+        }
+    }
+
+    private void evictLeastRecentlyUsed() {
+        Map.Entry<K, CacheEntry<V>> eldest = null;
+        for (Map.Entry<K, CacheEntry<V>> candidate : entries.entrySet()) {
+            if (isExpired(candidate.getValue())) {
+                entries.remove(candidate.getKey(), candidate.getValue());
+            } else if (eldest == null || candidate.getValue().lastAccess < eldest.getValue().lastAccess) {
+                eldest = candidate;
+            }
+        }
+        if (eldest != null && entries.size() > maximumSize) {
+            entries.remove(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    private static final class CacheEntry<V> {
+        private final V value;
+        private final long writtenAt;
+        private volatile long lastAccess;
+
+        CacheEntry(V value, long writtenAt, long lastAccess) {
+            this.value = value;
+            this.writtenAt = writtenAt;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
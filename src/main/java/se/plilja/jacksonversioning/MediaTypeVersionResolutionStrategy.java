@@ -0,0 +1,148 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Determines the version from vendor media types such as {@code application/vnd.acme.v3+json}.
+ * Responses are serialized to the version in the {@code Accept} header and request bodies are
+ * deserialized from the version in the {@code Content-Type} header. Media types are case-insensitive,
+ * and so are the versions in them when the set of versions is known up front. Otherwise the version is
+ * parsed from the lower case form that media types are normalized to. Of several accepted versions the most preferred one is used, by quality
+ * and then by specificity.
+ *
+ * Parsing media types is expensive while clients tend to send only a handful of distinct headers,
+ * so the versions of parsed headers are cached. Only headers naming a known version are cached, and the
+ * least recently used ones are evicted, so headers without a version can not crowd out the ones in use.
+ */
+class MediaTypeVersionResolutionStrategy<V extends Comparable<V>> implements VersionResolutionStrategy<V>, VaryingVersionResolutionStrategy {
+    static final int MAX_CACHED_HEADERS = 256;
+    private static final Object NO_VERSION = new Object();
+    private static final Object UNKNOWN_VERSION = new Object();
+
+    private final String subtypePrefix;
+    private final VersionLookupTable<V> versionLookupTable;
+    private final ExpiringLruCache<String, V> parsedHeaders = new ExpiringLruCache<>(MAX_CACHED_HEADERS);
+    private final HeaderStrategy accept;
+    private final HeaderStrategy contentType;
+
+    MediaTypeVersionResolutionStrategy(String vendor, VersionLookupTable<V> versionLookupTable, VersioningMetrics versioningMetrics) {
+        this.subtypePrefix = "vnd." + vendor.toLowerCase(Locale.ROOT) + ".";
+        this.versionLookupTable = versionLookupTable.versions().isEmpty() ? versionLookupTable : versionLookupTable.caseInsensitive();
+        this.accept = new HeaderStrategy(HttpHeaders.ACCEPT, versioningMetrics);
+        this.contentType = new HeaderStrategy(HttpHeaders.CONTENT_TYPE, versioningMetrics);
+    }
+
+    @Override
+    public V getSerializeToVersion(ObjectNode object) {
+        return accept.getSerializeToVersion(object);
+    }
+
+    @Override
+    public V getDeserializeToVersion(ObjectNode object) {
+        return contentType.getDeserializeToVersion(object);
+    }
+
+    @Override
+    public List<String> getVaryHeaders() {
+        return Collections.singletonList(HttpHeaders.ACCEPT);
+    }
+
+    /**
+     * Whether the version of the given header is cached, for tests.
+     */
+    boolean isCached(String header) {
+        return parsedHeaders.get(header) != null;
+    }
+
+    int cachedHeaderCount() {
+        return parsedHeaders.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private V parse(String header) {
+        V cached = parsedHeaders.get(header);
+        if (cached != null) {
+            return cached;
+        }
+        Object result = parseMediaTypes(header);
+        if (result == UNKNOWN_VERSION) {
+            throw new UnknownApiVersionException();
+        } else if (result == NO_VERSION) {
+            return null;
+        }
+        parsedHeaders.put(header, (V) result);
+        return (V) result;
+    }
+
+    private Object parseMediaTypes(String header) {
+        List<MediaType> mediaTypes;
+        try {
+            mediaTypes = new ArrayList<>(MediaType.parseMediaTypes(header));
+        } catch (InvalidMediaTypeException e) {
+            return NO_VERSION;
+        }
+        MediaType.sortBySpecificityAndQuality(mediaTypes);
+        for (MediaType mediaType : mediaTypes) {
+            String subtype = mediaType.getSubtype();
+            if (subtype.startsWith(subtypePrefix) && mediaType.getQualityValue() > 0) {
+                int suffix = subtype.indexOf('+');
+                String version = subtype.substring(subtypePrefix.length(), suffix < 0 ? subtype.length() : suffix);
+                V result = versionLookupTable.lookup(version);
+                return result == null ? UNKNOWN_VERSION : result;
+            }
+        }
+        return NO_VERSION;
+    }
+
+    private class HeaderStrategy extends AbstractRequestVersionResolutionStrategy<V> {
+        private final String headerName;
+
+        HeaderStrategy(String headerName, VersioningMetrics versioningMetrics) {
+            super(MediaTypeVersionResolutionStrategy.class.getSimpleName() + "." + headerName, versioningMetrics);
+            this.headerName = headerName;
+        }
+
+        @Override
+        V resolveVersion(HttpServletRequest request) {
+            String header = request.getHeader(headerName);
+            V result = header == null ? null : parse(header);
+            if (result == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, String.format("Missing API version media type in request header %s", headerName));
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer backed metrics. Meters are looked up once per tag combination and then kept,
+ * so recording a measurement does not go through the registry.
+ *
+ * Kept apart from {@link SpringVersioningModuleBuilder} so that Micrometer is only needed on the classpath
+ * when this class is used, see {@link SpringVersioningModuleBuilder.ReadyForBuilding#withMetrics(VersioningMetrics)}.
+ */
+public class MicrometerVersioningMetrics implements VersioningMetrics {
+    static final String REQUESTS = "jackson.versioning.requests";
+    static final String REJECTIONS = "jackson.versioning.rejections";
+    static final String SERIALIZE = "jackson.versioning.serialize";
+    static final String DESERIALIZE = "jackson.versioning.deserialize";
+
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<Object, Counter> requests = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> rejections = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, ConcurrentMap<Object, Timer>> serializeTimers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, ConcurrentMap<Object, Timer>> deserializeTimers = new ConcurrentHashMap<>();
+
+    public MicrometerVersioningMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public void versionResolved(Object version) {
+        Counter counter = requests.get(version);
+        if (counter == null) {
+            counter = requests.computeIfAbsent(version, v -> meterRegistry.counter(REQUESTS, "version", String.valueOf(v)));
+        }
+        counter.increment();
+    }
+
+    @Override
+    public void versionRejected(String reason) {
+        Counter counter = rejections.get(reason);
+        if (counter == null) {
+            counter = rejections.computeIfAbsent(reason, r -> meterRegistry.counter(REJECTIONS, "reason", r));
+        }
+        counter.increment();
+    }
+
+    @Override
+    public void serialized(Class<?> type, Object fromVersion, Object toVersion, long nanos) {
+        // Serialization always starts out from the latest version, so the target version identifies the timer
+        timer(serializeTimers, SERIALIZE, type, toVersion, fromVersion, toVersion)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void deserialized(Class<?> type, Object fromVersion, Object toVersion, long nanos) {
+        timer(deserializeTimers, DESERIALIZE, type, fromVersion, fromVersion, toVersion)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(ConcurrentMap<Class<?>, ConcurrentMap<Object, Timer>> timers, String name, Class<?> type,
+                        Object key, Object fromVersion, Object toVersion) {
+        ConcurrentMap<Object, Timer> timersForType = timers.get(type);
+        if (timersForType == null) {
+            timersForType = timers.computeIfAbsent(type, t -> new ConcurrentHashMap<>());
+        }
+        Timer timer = timersForType.get(key);
+        if (timer == null) {
+            timer = timersForType.computeIfAbsent(key, k -> Timer.builder(name)
+                    .tag("class", type.getSimpleName())
+                    .tag("from", String.valueOf(fromVersion))
+                    .tag("to", String.valueOf(toVersion))
+                    .register(meterRegistry));
+        }
+        return timer;
+    }
+}
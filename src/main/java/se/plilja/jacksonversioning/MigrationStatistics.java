@@ -0,0 +1,65 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Progress of a {@link DocumentMigrator#migrateNdjson} run.
+ */
+public final class MigrationStatistics {
+    private final long documents;
+    private final long bytes;
+    private final long elapsedNanos;
+
+    MigrationStatistics(long documents, long bytes, long elapsedNanos) {
+        this.documents = documents;
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getDocuments() {
+        return documents;
+    }
+
+    /**
+     * Bytes written so far.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getElapsed(TimeUnit unit) {
+        return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public double getDocumentsPerSecond() {
+        return elapsedNanos == 0 ? 0 : documents * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d documents, %.1f MB in %.1f s (%.0f documents/s)",
+                documents, bytes / 1e6, elapsedNanos / 1e9, getDocumentsPerSecond());
+    }
+}
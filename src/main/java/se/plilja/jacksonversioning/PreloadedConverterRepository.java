@@ -0,0 +1,142 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.util.ClassUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves the converters of a known set of versioned classes up front. Looking up one of
+ * them is a read from an immutable map, other converters are looked up through the delegate.
+ *
+ * The versioned classes are either found by scanning packages or read from the index written
+ * at build time by the jackson-versioning-spring-processor annotation processor.
+ *
+ * Converters from the application context that are not singleton beans are checked up front as well,
+ * but are not kept, so that prototype and request scoped converters are looked up on every use.
+ */
+class PreloadedConverterRepository<V> implements VersionedConverterRepository<V> {
+    static final String INDEX = "META-INF/jackson-versioning/versioned-classes";
+
+    private final List<Class<?>> versionedClasses;
+    private final Map<Class<?>, VersionConverter<V>> converters;
+    private final VersionedConverterRepository<V> delegate;
+
+    PreloadedConverterRepository(VersionedConverterRepository<V> delegate, Collection<Class<?>> versionedClasses) {
+        this.delegate = delegate;
+        this.versionedClasses = Collections.unmodifiableList(new ArrayList<>(versionedClasses));
+        this.converters = Collections.unmodifiableMap(preload(delegate, versionedClasses));
+    }
+
+    static <V> PreloadedConverterRepository<V> fromPackages(VersionedConverterRepository<V> delegate, String... basePackages) {
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+        scanner.addIncludeFilter(new AnnotationTypeFilter(JsonVersioned.class));
+        List<Class<?>> versionedClasses = new ArrayList<>();
+        for (String basePackage : basePackages) {
+            for (BeanDefinition beanDefinition : scanner.findCandidateComponents(basePackage)) {
+                versionedClasses.add(ClassUtils.resolveClassName(beanDefinition.getBeanClassName(), ClassUtils.getDefaultClassLoader()));
+            }
+        }
+        return new PreloadedConverterRepository<>(delegate, versionedClasses);
+    }
+
+    static <V> PreloadedConverterRepository<V> fromIndex(VersionedConverterRepository<V> delegate) {
+        ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+        List<Class<?>> versionedClasses = new ArrayList<>();
+        try {
+            Enumeration<URL> indexes = classLoader.getResources(INDEX);
+            while (indexes.hasMoreElements()) {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(indexes.nextElement().openStream(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (!line.trim().isEmpty()) {
+                            versionedClasses.add(ClassUtils.resolveClassName(line.trim(), classLoader));
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Unable to read %s", INDEX), e);
+        }
+        return new PreloadedConverterRepository<>(delegate, versionedClasses);
+    }
+
+    static boolean isIndexPresent() {
+        return ClassUtils.getDefaultClassLoader().getResource(INDEX) != null;
+    }
+
+    List<Class<?>> versionedClasses() {
+        return versionedClasses;
+    }
+
+    @Override
+    public VersionConverter<V> get(Class<? extends VersionConverter<V>> converterClass) {
+        VersionConverter<V> converter = converters.get(converterClass);
+        return converter != null ? converter : delegate.get(converterClass);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> Map<Class<?>, VersionConverter<V>> preload(VersionedConverterRepository<V> delegate, Collection<Class<?>> versionedClasses) {
+        Map<Class<?>, VersionConverter<V>> result = new IdentityHashMap<>();
+        for (Class<?> versionedClass : versionedClasses) {
+            Class<? extends VersionConverter<V>> converterClass = (Class<? extends VersionConverter<V>>) (Class<?>) versionedClass.getAnnotation(JsonVersioned.class).converterClass();
+            if (result.containsKey(converterClass)) {
+                continue;
+            }
+            VersionConverter<V> converter;
+            try {
+                converter = delegate.get(converterClass);
+            } catch (RuntimeException e) {
+                throw new IllegalStateException(String.format("Unable to get converter %s for %s", converterClass.getName(), versionedClass.getName()), e);
+            }
+            if (!converterClass.isInstance(converter)) {
+                throw new IllegalStateException(String.format("Unable to get converter %s for %s", converterClass.getName(), versionedClass.getName()));
+            }
+            if (isShared(delegate, converterClass)) {
+                result.put(converterClass, converter);
+            }
+        }
+        return result;
+    }
+
+    private static boolean isShared(VersionedConverterRepository<?> delegate, Class<?> converterClass) {
+        return !(delegate instanceof ApplicationContextConverterRepository)
+                || ((ApplicationContextConverterRepository<?>) delegate).isSingleton(converterClass);
+    }
+}
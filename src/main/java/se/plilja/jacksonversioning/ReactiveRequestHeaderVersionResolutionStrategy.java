@@ -0,0 +1,76 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+class ReactiveRequestHeaderVersionResolutionStrategy<V extends Comparable<V>> implements VersionResolutionStrategy<V> {
+    static final Object MISSING_VERSION = new Object();
+
+    private final String headerName;
+    private final VersionLookupTable<V> versionLookupTable;
+    private final VersioningMetrics versioningMetrics;
+
+    ReactiveRequestHeaderVersionResolutionStrategy(String headerName, VersionLookupTable<V> versionLookupTable, VersioningMetrics versioningMetrics) {
+        this.headerName = headerName;
+        this.versionLookupTable = versionLookupTable;
+        this.versioningMetrics = versioningMetrics;
+    }
+
+    @Override
+    public V getSerializeToVersion(ObjectNode object) {
+        return getVersion();
+    }
+
+    @Override
+    public V getDeserializeToVersion(ObjectNode object) {
+        return getVersion();
+    }
+
+    Object resolveVersion(ServerHttpRequest request) {
+        String header = request.getHeaders().getFirst(headerName);
+        if (header == null) {
+            return MISSING_VERSION;
+        }
+        V result = versionLookupTable.lookup(header);
+        if (result == null) {
+            versioningMetrics.versionRejected("unknown");
+            throw new UnknownApiVersionException();
+        }
+        versioningMetrics.versionResolved(result);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V getVersion() {
+        Object version = VersionContext.currentVersion();
+        if (version == MISSING_VERSION) {
+            versioningMetrics.versionRejected("missing");
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, String.format("Missing API version request header %s", headerName));
+        }
+        return (V) version;
+    }
+}
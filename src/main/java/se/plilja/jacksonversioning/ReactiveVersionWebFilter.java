@@ -0,0 +1,86 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Resolves the version of a WebFlux request once and stores it in the Reactor context,
+ * from where {@link VersioningJackson2JsonEncoder} and {@link VersioningJackson2JsonDecoder} pick it up.
+ *
+ * Kept apart from {@link SpringVersioningModuleBuilder} so that Reactor is only needed on the classpath
+ * when this class is used.
+ */
+public class ReactiveVersionWebFilter implements WebFilter {
+    static final String VERSION_KEY = ReactiveVersionWebFilter.class.getName() + ".VERSION";
+
+    private final ReactiveRequestHeaderVersionResolutionStrategy<?> versionResolutionStrategy;
+
+    ReactiveVersionWebFilter(ReactiveRequestHeaderVersionResolutionStrategy<?> versionResolutionStrategy) {
+        this.versionResolutionStrategy = versionResolutionStrategy;
+    }
+
+    /**
+     * Creates the web filter for the given builder, which must determine the version with
+     * {@link SpringVersioningModuleBuilder.WithVersionResolutionStrategy#withVersionFromReactiveHeader(String)}.
+     */
+    public static ReactiveVersionWebFilter from(SpringVersioningModuleBuilder.ReadyForBuilding versioning) {
+        VersionResolutionStrategy<?> versionResolutionStrategy = SpringVersioningModuleBuilder.buildVersionResolutionStrategy(versioning);
+        if (!(versionResolutionStrategy instanceof ReactiveRequestHeaderVersionResolutionStrategy)) {
+            throw new IllegalStateException("A web filter can only be built when the version is determined by a reactive request header");
+        }
+        return new ReactiveVersionWebFilter((ReactiveRequestHeaderVersionResolutionStrategy<?>) versionResolutionStrategy);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        Object version;
+        try {
+            version = versionResolutionStrategy.resolveVersion(exchange.getRequest());
+        } catch (RuntimeException e) {
+            return Mono.error(e);
+        }
+        return chain.filter(exchange).subscriberContext(context -> context.put(VERSION_KEY, version));
+    }
+
+    static Map<String, Object> withVersionHint(Map<String, Object> hints, Context context) {
+        Object version = context.getOrDefault(VERSION_KEY, null);
+        if (version == null) {
+            return hints;
+        }
+        Map<String, Object> result = hints == null ? new HashMap<>() : new HashMap<>(hints);
+        result.put(VERSION_KEY, version);
+        return result;
+    }
+
+    static Object versionHint(Map<String, Object> hints) {
+        return hints == null ? null : hints.get(VERSION_KEY);
+    }
+}
@@ -22,49 +22,38 @@
  */
 package se.plilja.jacksonversioning;
 
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.springframework.http.HttpStatus;
-import org.springframework.web.context.request.RequestAttributes;
-import org.springframework.web.context.request.RequestContextHolder;
-import org.springframework.web.context.request.ServletRequestAttributes;
 import org.springframework.web.server.ResponseStatusException;
 
 import javax.servlet.http.HttpServletRequest;
+import java.util.Collections;
+import java.util.List;
 
-class RequestHeaderVersionResolutionStrategy<V extends Comparable<V>> implements VersionResolutionStrategy<V> {
+class RequestHeaderVersionResolutionStrategy<V extends Comparable<V>> extends AbstractRequestVersionResolutionStrategy<V> implements VaryingVersionResolutionStrategy {
     private final String headerName;
-    private final VersionsDescription<V> versionsDescription;
+    private final VersionLookupTable<V> versionLookupTable;
 
-    RequestHeaderVersionResolutionStrategy(String headerName, VersionsDescription<V> versionsDescription) {
+    RequestHeaderVersionResolutionStrategy(String headerName, VersionLookupTable<V> versionLookupTable, VersioningMetrics versioningMetrics) {
+        super(RequestHeaderVersionResolutionStrategy.class.getSimpleName() + "." + headerName, versioningMetrics);
         this.headerName = headerName;
-        this.versionsDescription = versionsDescription;
+        this.versionLookupTable = versionLookupTable;
     }
 
     @Override
-    public V getSerializeToVersion(ObjectNode object) {
-        return getParameter();
+    public List<String> getVaryHeaders() {
+        return Collections.singletonList(headerName);
     }
 
     @Override
-    public V getDeserializeToVersion(ObjectNode object) {
-        return getParameter();
-    }
-
-    private V getParameter() {
-        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
-        if (requestAttributes instanceof ServletRequestAttributes) {
-            HttpServletRequest request = ((ServletRequestAttributes) requestAttributes).getRequest();
-            String header = request.getHeader(headerName);
-            if (header == null) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, String.format("Missing API version request parameter %s", request));
-            }
-            V result = versionsDescription.fromString(header);
-            if (result == null) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, String.format("Unknown API version %s", header));
-            }
-            return result;
-        } else {
-            return null;
+    V resolveVersion(HttpServletRequest request) {
+        String header = request.getHeader(headerName);
+        if (header == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, String.format("Missing API version request header %s", headerName));
+        }
+        V result = versionLookupTable.lookup(header);
+        if (result == null) {
+            throw new UnknownApiVersionException();
         }
+        return result;
     }
 }
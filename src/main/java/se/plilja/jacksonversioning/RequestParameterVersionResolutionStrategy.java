@@ -22,49 +22,31 @@
  */
 package se.plilja.jacksonversioning;
 
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.springframework.http.HttpStatus;
-import org.springframework.web.context.request.RequestAttributes;
-import org.springframework.web.context.request.RequestContextHolder;
-import org.springframework.web.context.request.ServletRequestAttributes;
 import org.springframework.web.server.ResponseStatusException;
 
 import javax.servlet.http.HttpServletRequest;
 
-class RequestParameterVersionResolutionStrategy<V extends Comparable<V>> implements VersionResolutionStrategy<V> {
+class RequestParameterVersionResolutionStrategy<V extends Comparable<V>> extends AbstractRequestVersionResolutionStrategy<V> {
     private final String requestParameterName;
-    private final VersionsDescription<V> versionsDescription;
+    private final VersionLookupTable<V> versionLookupTable;
 
-    RequestParameterVersionResolutionStrategy(String requestParameterName, VersionsDescription<V> versionsDescription) {
+    RequestParameterVersionResolutionStrategy(String requestParameterName, VersionLookupTable<V> versionLookupTable, VersioningMetrics versioningMetrics) {
+        super(RequestParameterVersionResolutionStrategy.class.getSimpleName() + "." + requestParameterName, versioningMetrics);
         this.requestParameterName = requestParameterName;
-        this.versionsDescription = versionsDescription;
+        this.versionLookupTable = versionLookupTable;
     }
 
     @Override
-    public V getSerializeToVersion(ObjectNode object) {
-        return getParameter();
-    }
-
-    @Override
-    public V getDeserializeToVersion(ObjectNode object) {
-        return getParameter();
-    }
-
-    private V getParameter() {
-        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
-        if (requestAttributes instanceof ServletRequestAttributes) {
-            HttpServletRequest request = ((ServletRequestAttributes) requestAttributes).getRequest();
-            String parameter = request.getParameter(requestParameterName);
-            if (parameter == null) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, String.format("Missing API version request parameter %s", request));
-            }
-            V result = versionsDescription.fromString(parameter);
-            if (result == null) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, String.format("Unknown API version %s", parameter));
-            }
-            return result;
-        } else {
-            return null;
+    V resolveVersion(HttpServletRequest request) {
+        String parameter = request.getParameter(requestParameterName);
+        if (parameter == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, String.format("Missing API version request parameter %s", requestParameterName));
+        }
+        V result = versionLookupTable.lookup(parameter);
+        if (result == null) {
+            throw new UnknownApiVersionException();
         }
+        return result;
     }
 }
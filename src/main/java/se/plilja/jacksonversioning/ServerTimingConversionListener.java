@@ -0,0 +1,250 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ * Reports the time spent converting bodies in a {@code Server-Timing} response header, for requests carrying
+ * the given debug header. Register the same instance both as a conversion listener and as a servlet filter:
+ *
+ * <pre>
+ * &#64;Bean
+ * ServerTimingConversionListener serverTimingConversionListener() {
+ *     return new ServerTimingConversionListener("X-Debug-Versioning");
+ * }
+ *
+ * &#64;Bean
+ * VersioningHttpMessageConverter versioningHttpMessageConverter(ServerTimingConversionListener serverTimingConversionListener) {
+ *     return SpringVersioningModuleBuilder.withEnumVersions(YourVersionEnum.class)
+ *             // ...
+ *             .withConversionListener(serverTimingConversionListener)
+ *             .buildHttpMessageConverter(new ObjectMapper());
+ * }
+ * </pre>
+ *
+ * The response of a debugged request is buffered so that the header can be added after the body has been written.
+ * Asynchronous requests, including streamed responses and {@code Callable} results, are not timed: once the
+ * request turns asynchronous, the buffered output is passed on and the rest of the body is written straight
+ * through, without a {@code Server-Timing} header. Requests without the debug header are neither buffered nor timed.
+ */
+public class ServerTimingConversionListener extends OncePerRequestFilter implements ConversionListener {
+    static final String HEADER_NAME = "Server-Timing";
+    private static final String ATTRIBUTE_NAME = ServerTimingConversionListener.class.getName() + ".timing";
+
+    private final String debugHeaderName;
+
+    public ServerTimingConversionListener(String debugHeaderName) {
+        this.debugHeaderName = debugHeaderName;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        if (request.getHeader(debugHeaderName) == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        Timing timing = new Timing();
+        BufferingResponseWrapper responseWrapper = new BufferingResponseWrapper(response);
+        request.setAttribute(ATTRIBUTE_NAME, timing);
+        try {
+            filterChain.doFilter(request, responseWrapper);
+        } finally {
+            request.removeAttribute(ATTRIBUTE_NAME);
+        }
+        if (isAsyncStarted(request)) {
+            responseWrapper.passThrough(null);
+        } else {
+            responseWrapper.passThrough(timing.toString());
+        }
+    }
+
+    @Override
+    public void conversionFinished(Class<?> type, Object fromVersion, Object toVersion, long nanos) {
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes instanceof ServletRequestAttributes) {
+            // Read from the request itself, the attributes may already have been completed by an asynchronous request
+            Object timing = ((ServletRequestAttributes) requestAttributes).getRequest().getAttribute(ATTRIBUTE_NAME);
+            if (timing != null) {
+                ((Timing) timing).add(nanos);
+            }
+        }
+    }
+
+    /**
+     * Buffers the body until it is passed through, after which it is written straight to the response.
+     * Output may be written by an asynchronous thread while the request thread passes it through.
+     */
+    private static final class BufferingResponseWrapper extends HttpServletResponseWrapper {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private boolean passingThrough;
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+
+        BufferingResponseWrapper(HttpServletResponse response) {
+            super(response);
+        }
+
+        synchronized void passThrough(String serverTiming) throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (serverTiming != null) {
+                addHeader(HEADER_NAME, serverTiming);
+            }
+            passingThrough = true;
+            if (buffer.size() > 0) {
+                buffer.writeTo(getResponse().getOutputStream());
+                buffer.reset();
+            }
+        }
+
+        @Override
+        public synchronized ServletOutputStream getOutputStream() {
+            if (writer != null) {
+                throw new IllegalStateException("getWriter() has already been called");
+            }
+            if (outputStream == null) {
+                outputStream = new BufferingOutputStream();
+            }
+            return outputStream;
+        }
+
+        @Override
+        public synchronized PrintWriter getWriter() throws IOException {
+            if (outputStream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called");
+            }
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(new BufferingOutputStream(), getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public synchronized void flushBuffer() throws IOException {
+            // Flushing commits the response, which must wait for the header while buffering
+            if (passingThrough) {
+                if (writer != null) {
+                    writer.flush();
+                }
+                super.flushBuffer();
+            }
+        }
+
+        @Override
+        public synchronized void resetBuffer() {
+            super.resetBuffer();
+            buffer.reset();
+        }
+
+        @Override
+        public synchronized void reset() {
+            super.reset();
+            buffer.reset();
+        }
+
+        private final class BufferingOutputStream extends ServletOutputStream {
+            @Override
+            public void write(int b) throws IOException {
+                synchronized (BufferingResponseWrapper.this) {
+                    if (passingThrough) {
+                        getResponse().getOutputStream().write(b);
+                    } else {
+                        buffer.write(b);
+                    }
+                }
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                synchronized (BufferingResponseWrapper.this) {
+                    if (passingThrough) {
+                        getResponse().getOutputStream().write(b, off, len);
+                    } else {
+                        buffer.write(b, off, len);
+                    }
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                synchronized (BufferingResponseWrapper.this) {
+                    if (passingThrough) {
+                        getResponse().getOutputStream().flush();
+                    }
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                synchronized (BufferingResponseWrapper.this) {
+                    if (passingThrough) {
+                        getResponse().getOutputStream().close();
+                    }
+                }
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                throw new UnsupportedOperationException("Non-blocking output is not supported while timing conversions");
+            }
+        }
+    }
+
+    private static final class Timing {
+        private long nanos;
+        private int bodies;
+
+        synchronized void add(long nanos) {
+            this.nanos += nanos;
+            this.bodies++;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format(Locale.ROOT, "versioning;dur=%.3f;desc=\"%d converted\"", nanos / 1e6, bodies);
+        }
+    }
+}
@@ -22,9 +22,20 @@
  */
 package se.plilja.jacksonversioning;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.context.ApplicationContext;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 public final class SpringVersioningModuleBuilder {
     private SpringVersioningModuleBuilder() {
@@ -33,22 +44,69 @@ public final class SpringVersioningModuleBuilder {
 
     private static class InnerBuilder<V extends Comparable<V>> implements SpringVersioningModuleBuilder.WithVersionResolutionStrategy, SpringVersioningModuleBuilder.WithConverterRepository, SpringVersioningModuleBuilder.ReadyForBuilding {
         private final VersionsDescription<V> versionsDescription;
+        private final Function<Boolean, VersionLookupTable<V>> versionLookupTableFactory;
+        private boolean caseInsensitiveVersions = false;
+        private boolean versionRanges = false;
         private VersionedConverterRepository<V> versionedConverterRepository = null;
-        private VersionResolutionStrategy<V> versionResolutionStrategy = null;
+        private BiFunction<VersionLookupTable<V>, VersioningMetrics, VersionResolutionStrategy<V>> versionResolutionStrategyFactory = null;
+        private VersioningMetrics versioningMetrics = VersioningMetrics.NOOP;
+        private String[] preloadedPackages = null;
+        private int responseCacheMaximumSize = 0;
+        private Duration responseCacheTimeToLive = null;
+        private int warmUpIterations = 0;
+        private final List<ConversionListener> conversionListeners = new ArrayList<>();
 
-        private InnerBuilder(VersionsDescription<V> versionsDescription) {
+        private InnerBuilder(VersionsDescription<V> versionsDescription, Function<Boolean, VersionLookupTable<V>> versionLookupTableFactory) {
             this.versionsDescription = versionsDescription;
+            this.versionLookupTableFactory = versionLookupTableFactory;
+        }
+
+        @Override
+        public WithVersionResolutionStrategy withCaseInsensitiveVersions() {
+            caseInsensitiveVersions = true;
+            return this;
+        }
+
+        @Override
+        public WithVersionResolutionStrategy withVersionRanges() {
+            versionRanges = true;
+            return this;
         }
 
         @Override
         public WithConverterRepository withVersionDeterminedByRequestParameter(String parameterName) {
-            versionResolutionStrategy = new RequestParameterVersionResolutionStrategy<>(parameterName, versionsDescription);
+            versionResolutionStrategyFactory = (versionLookupTable, metrics) -> new RequestParameterVersionResolutionStrategy<>(parameterName, versionLookupTable, metrics);
             return this;
         }
 
         @Override
         public WithConverterRepository withVersionDeterminedByRequestHeader(String headerName) {
-            versionResolutionStrategy = new RequestHeaderVersionResolutionStrategy<>(headerName, versionsDescription);
+            versionResolutionStrategyFactory = (versionLookupTable, metrics) -> new RequestHeaderVersionResolutionStrategy<>(headerName, versionLookupTable, metrics);
+            return this;
+        }
+
+        @Override
+        public WithConverterRepository withVersionDeterminedByMediaType(String vendor) {
+            versionResolutionStrategyFactory = (versionLookupTable, metrics) -> new MediaTypeVersionResolutionStrategy<>(vendor, versionLookupTable, metrics);
+            return this;
+        }
+
+        @Override
+        public WithConverterRepository withVersionDeterminedByFirstOf(VersionSource... versionSources) {
+            List<VersionSource> sources = Arrays.asList(versionSources.clone());
+            versionResolutionStrategyFactory = (versionLookupTable, metrics) -> new CompositeVersionResolutionStrategy<>(sources, versionLookupTable, metrics);
+            return this;
+        }
+
+        @Override
+        public WithConverterRepository withVersionDeterminedByVersionContext() {
+            versionResolutionStrategyFactory = (versionLookupTable, metrics) -> new VersionContextVersionResolutionStrategy<>();
+            return this;
+        }
+
+        @Override
+        public WithConverterRepository withVersionFromReactiveHeader(String headerName) {
+            versionResolutionStrategyFactory = (versionLookupTable, metrics) -> new ReactiveRequestHeaderVersionResolutionStrategy<>(headerName, versionLookupTable, metrics);
             return this;
         }
 
@@ -60,31 +118,222 @@ public final class SpringVersioningModuleBuilder {
 
         @Override
         public ReadyForBuilding withConvertersCreatedByReflection() {
-            versionedConverterRepository = new ReflectionVersionedConverterRepository<>();
+            versionedConverterRepository = new CachingConverterRepository<>(new ReflectionVersionedConverterRepository<>());
+            return this;
+        }
+
+        @Override
+        public ReadyForBuilding withPreloadedConverters(String... basePackages) {
+            preloadedPackages = basePackages;
+            return this;
+        }
+
+        @Override
+        public ReadyForBuilding withMetrics(VersioningMetrics versioningMetrics) {
+            this.versioningMetrics = Objects.requireNonNull(versioningMetrics, "versioningMetrics");
+            return this;
+        }
+
+        @Override
+        public ReadyForBuilding withResponseCache(int maximumSize, Duration timeToLive) {
+            responseCacheMaximumSize = maximumSize;
+            responseCacheTimeToLive = Objects.requireNonNull(timeToLive, "timeToLive");
+            return this;
+        }
+
+        @Override
+        public ReadyForBuilding withConversionListener(ConversionListener conversionListener) {
+            conversionListeners.add(Objects.requireNonNull(conversionListener, "conversionListener"));
+            return this;
+        }
+
+        @Override
+        public ReadyForBuilding withWarmUp(int iterations) {
+            if (iterations < 1) {
+                throw new IllegalArgumentException("Warm up iterations must be at least 1");
+            }
+            warmUpIterations = iterations;
             return this;
         }
 
         @Override
         public VersioningModule build() {
+            VersionLookupTable<V> versionLookupTable = buildVersionLookupTable();
+            VersionedConverterRepository<V> converterRepository = buildConverterRepository();
+            if (warmUpIterations > 0) {
+                ObjectMapper objectMapper = new ObjectMapper();
+                warmUp(converterRepository, objectMapper, buildVersionObjectMappers(objectMapper, converterRepository, versionLookupTable));
+            }
+            return build(converterRepository, buildVersionResolutionStrategy(versionLookupTable));
+        }
+
+        @Override
+        public VersioningHttpMessageConverter buildHttpMessageConverter(ObjectMapper objectMapper) {
+            VersionLookupTable<V> versionLookupTable = buildVersionLookupTable();
+            VersionResolutionStrategy<V> versionResolutionStrategy = buildVersionResolutionStrategy(versionLookupTable);
+            VersionedConverterRepository<V> converterRepository = buildConverterRepository();
+            ObjectMapper versioningObjectMapper = objectMapper.copy().registerModule(build(converterRepository, versionResolutionStrategy));
+            Map<V, ObjectMapper> versionObjectMappers = buildVersionObjectMappers(objectMapper, converterRepository, versionLookupTable);
+            if (warmUpIterations > 0) {
+                warmUp(converterRepository, objectMapper, versionObjectMappers);
+            }
+            return new VersioningHttpMessageConverter(versioningObjectMapper, versionObjectMappers, versionResolutionStrategy,
+                    versionLookupTable.latest(), versioningMetrics, buildResponseCache(), buildConversionListener());
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public DocumentMigrator buildDocumentMigrator(ObjectMapper objectMapper) {
+            VersionLookupTable<V> versionLookupTable = buildVersionLookupTable();
+            VersionedConverterRepository<V> converterRepository = buildConverterRepository();
+            return new DocumentMigrator(versionLookupTable, version -> {
+                if (version.equals(versionLookupTable.latest())) {
+                    return objectMapper;
+                }
+                return objectMapper.copy().registerModule(build(converterRepository, new FixedVersionResolutionStrategy<>((V) version)));
+            }, Runtime.getRuntime().availableProcessors());
+        }
+
+        private Map<V, ObjectMapper> buildVersionObjectMappers(ObjectMapper objectMapper, VersionedConverterRepository<V> converterRepository,
+                                                               VersionLookupTable<V> versionLookupTable) {
+            Map<V, ObjectMapper> versionObjectMappers = new HashMap<>();
+            for (V version : versionLookupTable.versions()) {
+                if (version.equals(versionLookupTable.latest())) {
+                    versionObjectMappers.put(version, objectMapper);
+                } else {
+                    versionObjectMappers.put(version, objectMapper.copy().registerModule(
+                            build(converterRepository, new FixedVersionResolutionStrategy<>(version))));
+                }
+            }
+            return versionObjectMappers;
+        }
+
+        private void warmUp(VersionedConverterRepository<V> converterRepository, ObjectMapper latestObjectMapper, Map<V, ObjectMapper> versionObjectMappers) {
+            if (!(converterRepository instanceof PreloadedConverterRepository)) {
+                throw new IllegalStateException("Warm up requires the versioned classes to be known, see withPreloadedConverters");
+            }
+            if (versionObjectMappers.isEmpty()) {
+                throw new IllegalStateException("Warm up requires the set of versions to be known up front");
+            }
+            ConverterWarmUp.warmUp(((PreloadedConverterRepository<V>) converterRepository).versionedClasses(),
+                    latestObjectMapper, versionObjectMappers, warmUpIterations);
+        }
+
+        private ConversionListener buildConversionListener() {
+            if (conversionListeners.isEmpty()) {
+                return null;
+            }
+            return conversionListeners.size() == 1 ? conversionListeners.get(0) : new CompositeConversionListener(conversionListeners);
+        }
+
+        private ExpiringLruCache<VersionedResponseCache.Key, byte[]> buildResponseCache() {
+            if (responseCacheTimeToLive == null) {
+                return null;
+            }
+            return new ExpiringLruCache<>(responseCacheMaximumSize, responseCacheTimeToLive.toNanos(), System::nanoTime);
+        }
+
+        private VersionLookupTable<V> buildVersionLookupTable() {
+            VersionLookupTable<V> versionLookupTable = versionLookupTableFactory.apply(caseInsensitiveVersions);
+            return versionRanges ? versionLookupTable.withRanges() : versionLookupTable;
+        }
+
+        private VersionResolutionStrategy<V> buildVersionResolutionStrategy() {
+            return buildVersionResolutionStrategy(buildVersionLookupTable());
+        }
+
+        private VersionResolutionStrategy<V> buildVersionResolutionStrategy(VersionLookupTable<V> versionLookupTable) {
+            Objects.requireNonNull(versionResolutionStrategyFactory, "VersionResolutionStrategy must be set before building");
+            return versionResolutionStrategyFactory.apply(versionLookupTable, versioningMetrics);
+        }
+
+        private VersioningModule build(VersionedConverterRepository<V> converterRepository, VersionResolutionStrategy<V> versionResolutionStrategy) {
             Objects.requireNonNull(versionsDescription, "VersionsDescription must be set before building");
+            return new VersioningModule(versionsDescription, converterRepository, versionResolutionStrategy);
+        }
+
+        private VersionedConverterRepository<V> buildConverterRepository() {
             Objects.requireNonNull(versionedConverterRepository, "VersionsConverterRepository must be set before building");
-            Objects.requireNonNull(versionResolutionStrategy, "VersionResolutionStrategy must be set before building");
-            return new VersioningModule(versionsDescription, versionedConverterRepository, versionResolutionStrategy);
+            if (preloadedPackages != null) {
+                return PreloadedConverterRepository.fromPackages(versionedConverterRepository, preloadedPackages);
+            } else if (PreloadedConverterRepository.isIndexPresent()) {
+                return PreloadedConverterRepository.fromIndex(versionedConverterRepository);
+            }
+            return versionedConverterRepository;
         }
     }
 
+    /**
+     * Builds the version resolution strategy of the given builder, for integrations kept apart from the builder
+     * so that their dependencies are optional, such as {@link ReactiveVersionWebFilter#from(ReadyForBuilding)}.
+     */
+    static VersionResolutionStrategy<?> buildVersionResolutionStrategy(ReadyForBuilding builder) {
+        return ((InnerBuilder<?>) builder).buildVersionResolutionStrategy();
+    }
+
     public static <V extends Enum<V>> WithVersionResolutionStrategy withEnumVersions(Class<V> versionsEnum) {
-        return new InnerBuilder<>(new EnumVersionsDescription<V>(versionsEnum));
+        return new InnerBuilder<>(new EnumVersionsDescription<V>(versionsEnum),
+                caseInsensitive -> VersionLookupTable.forEnum(versionsEnum, caseInsensitive));
     }
 
     public static <V extends Comparable<V>> WithVersionResolutionStrategy withCustomVersions(VersionsDescription<V> versionsDescription) {
-        return new InnerBuilder<>(versionsDescription);
+        return withCustomVersions(versionsDescription, Collections.emptyList());
+    }
+
+    /**
+     * Like {@link #withCustomVersions(VersionsDescription)} but with the complete set of versions known up front,
+     * allowing versions to be looked up in a precomputed table rather than parsed on every request.
+     * The string representation of each version must be accepted by {@link VersionsDescription#fromString(String)}.
+     */
+    public static <V extends Comparable<V>> WithVersionResolutionStrategy withCustomVersions(VersionsDescription<V> versionsDescription, Collection<V> knownVersions) {
+        return new InnerBuilder<>(versionsDescription,
+                caseInsensitive -> VersionLookupTable.of(versionsDescription, knownVersions, caseInsensitive));
     }
 
     public interface WithVersionResolutionStrategy {
+        /**
+         * Looks up versions ignoring case. Requires the set of versions to be known up front.
+         */
+        WithVersionResolutionStrategy withCaseInsensitiveVersions();
+
+        /**
+         * Accepts version ranges in addition to exact versions, {@code >=V2} for V2 or newer and {@code V2-V3}
+         * for V2 to V3, resolving them to the newest version in the range. Requires the set of versions to be
+         * known up front.
+         */
+        WithVersionResolutionStrategy withVersionRanges();
+
         WithConverterRepository withVersionDeterminedByRequestParameter(String parameterName);
 
         WithConverterRepository withVersionDeterminedByRequestHeader(String headerName);
+
+        /**
+         * Determines the version from vendor media types, {@code application/vnd.<vendor>.<version>+json}.
+         * Responses are serialized to the version in the {@code Accept} header and request bodies are
+         * deserialized from the version in the {@code Content-Type} header.
+         */
+        WithConverterRepository withVersionDeterminedByMediaType(String vendor);
+
+        /**
+         * Determines the version from the first of the given sources that has one, for example
+         * {@code withVersionDeterminedByFirstOf(pathSegment(), requestHeader("API_VERSION"), latestVersion())}.
+         * Requests for which none of the sources has a version are rejected.
+         */
+        WithConverterRepository withVersionDeterminedByFirstOf(VersionSource... versionSources);
+
+        /**
+         * Determines the version from {@link VersionContext} only, for using the versioning module outside of
+         * web requests: {@code VersionContext.forVersion(V1).call(() -> objectMapper.readValue(json, Car.class))}.
+         */
+        WithConverterRepository withVersionDeterminedByVersionContext();
+
+        /**
+         * Determines the version from a request header in a WebFlux application. The version is resolved once
+         * per request by the web filter from {@link ReactiveVersionWebFilter#from(ReadyForBuilding)} and carried in the
+         * Reactor context, from where {@link VersioningJackson2JsonEncoder} and
+         * {@link VersioningJackson2JsonDecoder} make it available to the versioning module.
+         */
+        WithConverterRepository withVersionFromReactiveHeader(String headerName);
     }
 
     public interface WithConverterRepository {
@@ -94,7 +343,62 @@ public final class SpringVersioningModuleBuilder {
     }
 
     public interface ReadyForBuilding {
+        /**
+         * Finds all classes annotated with {@link JsonVersioned} in the given packages and resolves their
+         * converters when building, failing the build if any of them can not be resolved.
+         * Not needed when the versioned classes are compiled with the jackson-versioning-spring-processor
+         * annotation processor, the converters of the classes it indexes are preloaded automatically.
+         */
+        ReadyForBuilding withPreloadedConverters(String... basePackages);
+
+        /**
+         * Reports requests per resolved version, rejected versions and, for bodies handled by
+         * {@link #buildHttpMessageConverter(ObjectMapper)}, serialization and deserialization times tagged by class
+         * and versions to the given metrics, for example {@code new MicrometerVersioningMetrics(meterRegistry)}.
+         */
+        ReadyForBuilding withMetrics(VersioningMetrics versioningMetrics);
+
+        /**
+         * Adds a cache of serialized responses, holding at most the given number of responses for at most the
+         * given time, to the message converter from {@link #buildHttpMessageConverter(ObjectMapper)}.
+         * See {@link VersioningHttpMessageConverter#getResponseCache()}.
+         */
+        ReadyForBuilding withResponseCache(int maximumSize, Duration timeToLive);
+
+        /**
+         * Notifies the given listener of every body converted by the message converter from
+         * {@link #buildHttpMessageConverter(ObjectMapper)}. May be called several times to add several listeners.
+         */
+        ReadyForBuilding withConversionListener(ConversionListener conversionListener);
+
+        /**
+         * Converts a synthetic instance of every versioned class to and from every version the given number of
+         * times when building, failing the build if any conversion fails. Instances are created by deserializing
+         * {@code {}}, classes that can not be created that way are skipped. Requires the versioned classes to be
+         * known, see {@link #withPreloadedConverters(String...)}, and the set of versions to be known up front.
+         *
+         * The message converter from {@link #buildHttpMessageConverter(ObjectMapper)} is warmed up with its own
+         * object mappers. {@link #build()} can only warm up the versioning code and validate the converters,
+         * the caches of the object mapper the module is later registered on start out empty.
+         */
+        ReadyForBuilding withWarmUp(int iterations);
+
         VersioningModule build();
+
+        /**
+         * Builds a message converter that serializes and deserializes using a copy of the given object mapper
+         * with the versioning module registered. When all versions are known up front, every historic version
+         * gets a copy of its own, resolving the version once per body instead of once per object.
+         * Bodies on the latest version skip versioning entirely and are handled by the given object mapper
+         * as is, so it should not have the versioning module registered.
+         */
+        VersioningHttpMessageConverter buildHttpMessageConverter(ObjectMapper objectMapper);
+
+        /**
+         * Builds a migrator converting stored documents between versions with copies of the given object mapper,
+         * independent of how the version of requests is determined.
+         */
+        DocumentMigrator buildDocumentMigrator(ObjectMapper objectMapper);
     }
 }
 
@@ -0,0 +1,198 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Propagates the API version of a request to work that runs on other threads.
+ *
+ * Capture a {@link Snapshot} on the request thread and run the work through it, or wrap an
+ * {@link Executor} to have every submitted task run with the version of the submitting thread.
+ * While a snapshot is bound, the resolution strategies use it instead of the request bound to the
+ * executing thread, so pooled threads can not pick up the version of some other request.
+ * A snapshot holds the resolved versions, not the request, so it stays valid after the request has completed.
+ * Only versions that have already been resolved during the request are captured, use
+ * {@link VersioningHttpMessageConverter#captureVersionContext()} to resolve the version of the request first.
+ *
+ * <pre>
+ * Executor versionedExecutor = VersionContext.wrap(Executors.newFixedThreadPool(8));
+ * return CompletableFuture.supplyAsync(() -&gt; objectMapper.writeValueAsString(cars), versionedExecutor);
+ * </pre>
+ */
+public final class VersionContext {
+    private static final ThreadLocal<Snapshot> CURRENT = new ThreadLocal<>();
+
+    private VersionContext() {
+        // should not be instantiated
+    }
+
+    /**
+     * Captures the version context of the current thread, that is the snapshot bound to it or else the versions
+     * resolved so far during the current request. The versions are copied, so the captured work does not depend
+     * on the request still being active when it runs.
+     */
+    public static Snapshot capture() {
+        Snapshot current = CURRENT.get();
+        if (current != null) {
+            return current;
+        }
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (!(requestAttributes instanceof ServletRequestAttributes)) {
+            return new Snapshot(null, Collections.emptyMap());
+        }
+        Map<String, Object> resolvedVersions = new HashMap<>();
+        for (String name : requestAttributes.getAttributeNames(RequestAttributes.SCOPE_REQUEST)) {
+            if (name.startsWith(AbstractRequestVersionResolutionStrategy.ATTRIBUTE_PREFIX)) {
+                resolvedVersions.put(name, requestAttributes.getAttribute(name, RequestAttributes.SCOPE_REQUEST));
+            }
+        }
+        return new Snapshot(null, resolvedVersions);
+    }
+
+    /**
+     * Creates a snapshot for an explicitly given version, for example when converting outside of any request.
+     */
+    public static <V extends Comparable<V>> Snapshot forVersion(V version) {
+        return forResolvedVersion(Objects.requireNonNull(version, "version"));
+    }
+
+    static Snapshot forResolvedVersion(Object version) {
+        return new Snapshot(version, Collections.emptyMap());
+    }
+
+    public static Runnable wrap(Runnable task) {
+        return capture().wrap(task);
+    }
+
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        return capture().wrap(task);
+    }
+
+    /**
+     * Wraps an executor so that every task runs with the version context of the thread submitting it.
+     * Works with any executor, including ones running tasks on virtual threads.
+     */
+    public static Executor wrap(Executor executor) {
+        return task -> executor.execute(wrap(task));
+    }
+
+    /**
+     * A task decorator for Spring's task executors, for example the one used for asynchronous request processing.
+     */
+    public static TaskDecorator taskDecorator() {
+        return task -> wrap(task);
+    }
+
+    static Object currentVersion() {
+        Snapshot current = CURRENT.get();
+        return current == null ? null : current.version;
+    }
+
+    /**
+     * The version, or the exception rejecting it, kept in the given request attribute when the bound snapshot was captured.
+     */
+    static Object currentResolvedVersion(String attributeName) {
+        Snapshot current = CURRENT.get();
+        return current == null ? null : current.resolvedVersions.get(attributeName);
+    }
+
+    static RequestAttributes currentRequestAttributes() {
+        return CURRENT.get() == null ? RequestContextHolder.getRequestAttributes() : null;
+    }
+
+    static <T> T callWithVersion(Object version, Supplier<T> supplier) {
+        if (version == null) {
+            return supplier.get();
+        }
+        return forResolvedVersion(version).supply(supplier);
+    }
+
+    public static final class Snapshot {
+        private final Object version;
+        private final Map<String, Object> resolvedVersions;
+
+        private Snapshot(Object version, Map<String, Object> resolvedVersions) {
+            this.version = version;
+            this.resolvedVersions = resolvedVersions;
+        }
+
+        public void run(Runnable task) {
+            supply(() -> {
+                task.run();
+                return null;
+            });
+        }
+
+        public <T> T call(Callable<T> task) throws Exception {
+            Snapshot previous = bind();
+            try {
+                return task.call();
+            } finally {
+                restore(previous);
+            }
+        }
+
+        public Runnable wrap(Runnable task) {
+            return () -> run(task);
+        }
+
+        public <T> Callable<T> wrap(Callable<T> task) {
+            return () -> call(task);
+        }
+
+        <T> T supply(Supplier<T> supplier) {
+            Snapshot previous = bind();
+            try {
+                return supplier.get();
+            } finally {
+                restore(previous);
+            }
+        }
+
+        private Snapshot bind() {
+            Snapshot previous = CURRENT.get();
+            CURRENT.set(this);
+            return previous;
+        }
+
+        private static void restore(Snapshot previous) {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable table mapping the textual form of every known version to the version itself.
+ *
+ * The table is built once when the module is built. Lookups neither allocate nor throw,
+ * an unknown version simply yields {@code null}. When the set of versions is not known up front,
+ * lookups are instead delegated to {@link VersionsDescription#fromString(String)}, which may allocate
+ * and whose rejection of an unknown version is caught on every lookup.
+ *
+ * A table accepting ranges also resolves {@code >=V2} and {@code V2-V3} to the newest known version
+ * in the range. The most recently used ranges are memoized, so a range in use is only parsed once.
+ * Strings that are not a range of known versions are not memoized, so they can not crowd out valid ranges.
+ */
+final class VersionLookupTable<V extends Comparable<V>> {
+    static final int MAX_NEGOTIATED_RANGES = 256;
+
+    private final List<String> keyList;
+    private final List<V> valueList;
+    private final String[] keys;
+    private final Object[] values;
+    private final int mask;
+    private final int maxKeyLength;
+    private final boolean caseInsensitive;
+    private final VersionsDescription<V> fallback;
+    private final V latest;
+    private final ExpiringLruCache<String, V> negotiatedRanges;
+
+    private VersionLookupTable(List<String> keys, List<V> values, boolean caseInsensitive, boolean ranges, VersionsDescription<V> fallback) {
+        this.keyList = keys;
+        this.valueList = values;
+        int capacity = Integer.highestOneBit(Math.max(keys.size(), 1) * 4 - 1) << 1;
+        this.keys = new String[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+        this.caseInsensitive = caseInsensitive;
+        this.fallback = fallback;
+        V latest = null;
+        int maxKeyLength = 0;
+        for (int i = 0; i < keys.size(); i++) {
+            String key = keys.get(i);
+            int slot = hash(key) & mask;
+            while (this.keys[slot] != null) {
+                if (matches(this.keys[slot], key)) {
+                    throw new IllegalArgumentException(String.format("Ambiguous version %s", key));
+                }
+                slot = (slot + 1) & mask;
+            }
+            this.keys[slot] = key;
+            this.values[slot] = values.get(i);
+            maxKeyLength = Math.max(maxKeyLength, key.length());
+            if (latest == null || latest.compareTo(values.get(i)) < 0) {
+                latest = values.get(i);
+            }
+        }
+        this.maxKeyLength = maxKeyLength;
+        this.latest = latest;
+        this.negotiatedRanges = ranges ? new ExpiringLruCache<>(MAX_NEGOTIATED_RANGES) : null;
+    }
+
+    static <V extends Enum<V>> VersionLookupTable<V> forEnum(Class<V> versionsEnum, boolean caseInsensitive) {
+        List<String> keys = new ArrayList<>();
+        List<V> values = Arrays.asList(versionsEnum.getEnumConstants());
+        for (V value : values) {
+            keys.add(value.name());
+        }
+        return new VersionLookupTable<>(keys, values, caseInsensitive, false, null);
+    }
+
+    static <V extends Comparable<V>> VersionLookupTable<V> of(VersionsDescription<V> versionsDescription, Collection<V> knownVersions, boolean caseInsensitive) {
+        if (knownVersions.isEmpty()) {
+            if (caseInsensitive) {
+                throw caseInsensitiveWithoutKnownVersions();
+            }
+            return new VersionLookupTable<>(new ArrayList<>(), new ArrayList<>(), false, false, versionsDescription);
+        }
+        List<String> keys = new ArrayList<>();
+        List<V> values = new ArrayList<>(knownVersions);
+        for (V value : values) {
+            String key = String.valueOf(value);
+            if (!value.equals(versionsDescription.fromString(key))) {
+                throw new IllegalArgumentException(String.format("Version %s can not be parsed from its string representation", key));
+            }
+            keys.add(key);
+        }
+        return new VersionLookupTable<>(keys, values, caseInsensitive, false, null);
+    }
+
+    V lookup(String s) {
+        if (fallback != null) {
+            return lookupInFallback(s);
+        }
+        V result = lookupExact(s);
+        if (result == null && negotiatedRanges != null) {
+            return lookupRange(s);
+        }
+        return result;
+    }
+
+    private V lookupExact(String s) {
+        return lookupExact(s, 0, s.length());
+    }
+
+    /**
+     * Looks up the version spelled by the given region of the string, without allocating.
+     */
+    @SuppressWarnings("unchecked")
+    private V lookupExact(String s, int from, int to) {
+        int length = to - from;
+        if (length > maxKeyLength) {
+            return null;
+        }
+        int slot = hash(s, from, to) & mask;
+        String key;
+        while ((key = keys[slot]) != null) {
+            if (key.length() == length && key.regionMatches(caseInsensitive, 0, s, from, length)) {
+                return (V) values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * A table with the same versions that ignores case when looking up versions.
+     */
+    VersionLookupTable<V> caseInsensitive() {
+        if (fallback != null) {
+            throw caseInsensitiveWithoutKnownVersions();
+        }
+        return caseInsensitive ? this : new VersionLookupTable<>(keyList, valueList, true, negotiatedRanges != null, fallback);
+    }
+
+    private static IllegalStateException caseInsensitiveWithoutKnownVersions() {
+        return new IllegalStateException("Case-insensitive versions require the set of versions to be known up front");
+    }
+
+    /**
+     * A table with the same versions that also accepts version ranges.
+     */
+    VersionLookupTable<V> withRanges() {
+        if (fallback != null) {
+            throw new IllegalStateException("Version ranges require the set of versions to be known up front");
+        }
+        return negotiatedRanges != null ? this : new VersionLookupTable<>(keyList, valueList, caseInsensitive, true, null);
+    }
+
+    /**
+     * All known versions, empty if the set of versions is not known up front.
+     */
+    List<V> versions() {
+        return Collections.unmodifiableList(valueList);
+    }
+
+    /**
+     * The newest known version, or {@code null} if the set of versions is not known up front.
+     */
+    V latest() {
+        return latest;
+    }
+
+    /**
+     * Whether the given range is memoized, for tests.
+     */
+    boolean isNegotiated(String s) {
+        return negotiatedRanges.get(s) != null;
+    }
+
+    int negotiatedRangeCount() {
+        return negotiatedRanges.size();
+    }
+
+    private V lookupRange(String s) {
+        if (!s.startsWith(">=") && s.indexOf('-') <= 0) {
+            return null;
+        }
+        V result = negotiatedRanges.get(s);
+        if (result == null) {
+            result = negotiate(s);
+            if (result != null) {
+                negotiatedRanges.put(s, result);
+            }
+        }
+        return result;
+    }
+
+    private V negotiate(String s) {
+        if (s.startsWith(">=")) {
+            V lower = lookupTrimmed(s, 2, s.length());
+            return lower == null ? null : latest;
+        }
+        for (int i = s.indexOf('-'); i > 0; i = s.indexOf('-', i + 1)) {
+            V lower = lookupTrimmed(s, 0, i);
+            V upper = lower == null ? null : lookupTrimmed(s, i + 1, s.length());
+            if (upper != null) {
+                return newest(lower, upper);
+            }
+        }
+        return null;
+    }
+
+    private V lookupTrimmed(String s, int from, int to) {
+        while (from < to && s.charAt(from) <= ' ') {
+            from++;
+        }
+        while (to > from && s.charAt(to - 1) <= ' ') {
+            to--;
+        }
+        return lookupExact(s, from, to);
+    }
+
+    private V newest(V lower, V upper) {
+        V result = null;
+        for (V value : valueList) {
+            if (value.compareTo(lower) >= 0 && value.compareTo(upper) <= 0 && (result == null || result.compareTo(value) < 0)) {
+                result = value;
+            }
+        }
+        return result;
+    }
+
+    private V lookupInFallback(String s) {
+        try {
+            return fallback.fromString(s);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private boolean matches(String key, String s) {
+        return caseInsensitive ? key.equalsIgnoreCase(s) : key.equals(s);
+    }
+
+    private int hash(String s) {
+        return hash(s, 0, s.length());
+    }
+
+    private int hash(String s, int from, int to) {
+        int h = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            h = 31 * h + (caseInsensitive ? Character.toLowerCase(Character.toUpperCase(c)) : c);
+        }
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * A place to look for the version of a request, see
+ * {@link SpringVersioningModuleBuilder.WithVersionResolutionStrategy#withVersionDeterminedByFirstOf(VersionSource...)}.
+ */
+public abstract class VersionSource {
+    private final String description;
+
+    private VersionSource(String description) {
+        this.description = description;
+    }
+
+    /**
+     * The first segment of the request path after the context path, such as {@code v2} in {@code /v2/cars}.
+     * A first segment that is not a known version leaves the version to the next source, so {@code /cars/v2}
+     * has no version in its path.
+     */
+    public static VersionSource pathSegment() {
+        return pathSegment(0);
+    }
+
+    /**
+     * The segment with the given zero based index in the request path after the context path, such as
+     * {@code v2} in {@code /api/v2/cars} for index 1.
+     */
+    public static VersionSource pathSegment(int index) {
+        if (index < 0) {
+            throw new IllegalArgumentException("Path segment index must not be negative");
+        }
+        return new VersionSource(index == 0 ? "path segment" : "path segment " + index) {
+            @Override
+            <V extends Comparable<V>> V resolve(HttpServletRequest request, VersionLookupTable<V> versionLookupTable) {
+                String path = request.getRequestURI();
+                int start = request.getContextPath().length() + 1;
+                for (int i = 0; i < index && start > 0; i++) {
+                    start = path.indexOf('/', start) + 1;
+                }
+                if (start <= 0 || start > path.length()) {
+                    return null;
+                }
+                int end = path.indexOf('/', start);
+                return versionLookupTable.lookup(path.substring(start, end < 0 ? path.length() : end));
+            }
+        };
+    }
+
+    /**
+     * The value of the given request header. An unknown version in the header rejects the request.
+     */
+    public static VersionSource requestHeader(String headerName) {
+        return new VersionSource("request header " + headerName) {
+            @Override
+            <V extends Comparable<V>> V resolve(HttpServletRequest request, VersionLookupTable<V> versionLookupTable) {
+                return lookup(request.getHeader(headerName), versionLookupTable);
+            }
+
+            @Override
+            String headerName() {
+                return headerName;
+            }
+        };
+    }
+
+    /**
+     * The value of the given request parameter. An unknown version in the parameter rejects the request.
+     */
+    public static VersionSource requestParameter(String parameterName) {
+        return new VersionSource("request parameter " + parameterName) {
+            @Override
+            <V extends Comparable<V>> V resolve(HttpServletRequest request, VersionLookupTable<V> versionLookupTable) {
+                return lookup(request.getParameter(parameterName), versionLookupTable);
+            }
+        };
+    }
+
+    /**
+     * Always the given version. Fails when building if the version is not known.
+     */
+    public static VersionSource defaultVersion(String version) {
+        return new VersionSource("default version " + version) {
+            @Override
+            <V extends Comparable<V>> V resolve(HttpServletRequest request, VersionLookupTable<V> versionLookupTable) {
+                return versionLookupTable.lookup(version);
+            }
+
+            @Override
+            void validate(VersionLookupTable<?> versionLookupTable) {
+                if (versionLookupTable.lookup(version) == null) {
+                    throw new IllegalArgumentException(String.format("Unknown default version %s", version));
+                }
+            }
+        };
+    }
+
+    /**
+     * Always the latest version.
+     */
+    public static VersionSource latestVersion() {
+        return new VersionSource("latest version") {
+            @Override
+            <V extends Comparable<V>> V resolve(HttpServletRequest request, VersionLookupTable<V> versionLookupTable) {
+                return versionLookupTable.latest();
+            }
+
+            @Override
+            void validate(VersionLookupTable<?> versionLookupTable) {
+                if (versionLookupTable.latest() == null) {
+                    throw new IllegalArgumentException("The latest version is not known, the set of versions must be given up front");
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns the version of the request, or null if this source has none.
+     */
+    abstract <V extends Comparable<V>> V resolve(HttpServletRequest request, VersionLookupTable<V> versionLookupTable);
+
+    void validate(VersionLookupTable<?> versionLookupTable) {
+    }
+
+    /**
+     * The request header this source reads, or null if it reads none.
+     */
+    String headerName() {
+        return null;
+    }
+
+    private static <V extends Comparable<V>> V lookup(String value, VersionLookupTable<V> versionLookupTable) {
+        if (value == null) {
+            return null;
+        }
+        V result = versionLookupTable.lookup(value);
+        if (result == null) {
+            throw new UnknownApiVersionException();
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return description;
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Caches serialized responses by resource, revision and version, see
+ * {@link SpringVersioningModuleBuilder.ReadyForBuilding#withResponseCache(int, java.time.Duration)}.
+ *
+ * <pre>
+ * &#64;GetMapping("/cars/{id}")
+ * ResponseEntity&lt;byte[]&gt; getCar(&#64;PathVariable int id, WebRequest request) {
+ *     Car car = carRepository.get(id);
+ *     return responseCache.get(request, "car/" + id, car.getRevision(), () -&gt; car);
+ * }
+ * </pre>
+ *
+ * Responses carry a strong ETag made up of the version, revision and resource, so a request whose
+ * {@code If-None-Match} header matches is answered with 304 Not Modified without serializing anything.
+ * They also carry a {@code Vary} header naming the request headers the version is read from, so that
+ * shared caches keep the versions apart. The content type is the first supported one the request accepts.
+ */
+public final class VersionedResponseCache {
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private final VersioningHttpMessageConverter converter;
+    private final ExpiringLruCache<Key, byte[]> cache;
+
+    VersionedResponseCache(VersioningHttpMessageConverter converter, ExpiringLruCache<Key, byte[]> cache) {
+        this.converter = converter;
+        this.cache = cache;
+    }
+
+    /**
+     * Responds with the body for the version of the current request, serializing it only if it is not cached.
+     * The body is not asked for at all when the response is cached or the client already has it,
+     * and concurrent requests missing the same response serialize it only once.
+     *
+     * @param resource identifies the resource, for example {@code "car/1"}
+     * @param revision changes whenever the resource changes, for example a version column or a last modified time
+     */
+    public ResponseEntity<byte[]> get(WebRequest request, Object resource, Object revision, Supplier<?> body) {
+        Objects.requireNonNull(resource, "resource");
+        Objects.requireNonNull(revision, "revision");
+        Object version = converter.requireSerializeToVersion();
+        String eTag = eTag(version, revision, resource);
+        String[] varyHeaders = converter.getVaryHeaders().toArray(new String[0]);
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).varyBy(varyHeaders).build();
+        }
+        MediaType contentType = contentType(request);
+        byte[] bytes = cache.computeIfAbsent(new Key(resource, revision, version), key -> serialize(body.get(), version));
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .eTag(eTag)
+                .varyBy(varyHeaders)
+                .body(bytes);
+    }
+
+    /**
+     * The first supported media type accepted by the request, by quality and then by specificity. Wildcards are
+     * resolved to the accepted media type, so that {@code application/*+json} responds with the vendor media
+     * type asked for.
+     */
+    private MediaType contentType(WebRequest request) {
+        List<MediaType> supportedMediaTypes = converter.getSupportedMediaTypes();
+        String[] accept = request.getHeaderValues(HttpHeaders.ACCEPT);
+        if (accept == null) {
+            return supportedMediaTypes.get(0);
+        }
+        List<MediaType> acceptedMediaTypes;
+        try {
+            acceptedMediaTypes = new ArrayList<>(MediaType.parseMediaTypes(Arrays.asList(accept)));
+        } catch (InvalidMediaTypeException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_ACCEPTABLE, e.getMessage());
+        }
+        MediaType.sortBySpecificityAndQuality(acceptedMediaTypes);
+        for (MediaType acceptedMediaType : acceptedMediaTypes) {
+            if (acceptedMediaType.getQualityValue() == 0) {
+                continue;
+            }
+            for (MediaType supportedMediaType : supportedMediaTypes) {
+                if (!acceptedMediaType.isCompatibleWith(supportedMediaType)) {
+                    continue;
+                }
+                if (supportedMediaType.isConcrete()) {
+                    return supportedMediaType;
+                } else if (acceptedMediaType.isConcrete()) {
+                    return acceptedMediaType.removeQualityValue();
+                }
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.NOT_ACCEPTABLE);
+    }
+
+    private byte[] serialize(Object body, Object version) {
+        Class<?> payloadClass = converter.isObserved(version) ? body.getClass() : null;
+        converter.serializationStarted(payloadClass, version);
+        long start = System.nanoTime();
+        try {
+            return converter.getObjectMapper(version).writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new HttpMessageNotWritableException("Could not write JSON: " + e.getOriginalMessage(), e);
+        } finally {
+            converter.serializationFinished(payloadClass, version, start);
+        }
+    }
+
+    /**
+     * The parts are percent-encoded so that they never contain the separator, making the ETag unambiguous.
+     */
+    static String eTag(Object version, Object revision, Object resource) {
+        StringBuilder result = new StringBuilder().append('"');
+        encode(version, result);
+        result.append('-');
+        encode(revision, result);
+        result.append('-');
+        encode(resource, result);
+        return result.append('"').toString();
+    }
+
+    private static void encode(Object value, StringBuilder result) {
+        byte[] bytes = String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+        for (byte b : bytes) {
+            char c = (char) (b & 0xff);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '.' || c == '_' || c == '~' || c == '/') {
+                result.append(c);
+            } else {
+                result.append('%').append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xf]);
+            }
+        }
+    }
+
+    static final class Key {
+        private final Object resource;
+        private final Object revision;
+        private final Object version;
+
+        Key(Object resource, Object revision, Object version) {
+            this.resource = Objects.requireNonNull(resource, "resource");
+            this.revision = Objects.requireNonNull(revision, "revision");
+            this.version = Objects.requireNonNull(version, "version");
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return resource.equals(key.resource) && revision.equals(key.revision) && version.equals(key.version);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(resource, revision, version);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Streams large collections to the client one element at a time, so that the whole response never has to be
+ * held in memory. The version is resolved once, when the response body is created on the request thread, and
+ * the serializers for the element type are looked up once for the whole sequence. A missing or unknown version
+ * is rejected right away, before the response is committed. The response is written with a snapshot of the
+ * resolved version, the request is not bound to the writing thread.
+ *
+ * <pre>
+ * &#64;GetMapping(value = "/cars/export", produces = "application/x-ndjson")
+ * StreamingResponseBody exportCars() {
+ *     return VersionedStreamingResponses.ndjson(versioningHttpMessageConverter, carRepository.streamAll(), Car.class);
+ * }
+ * </pre>
+ *
+ * Requires spring-webmvc on the classpath.
+ */
+public final class VersionedStreamingResponses {
+    private VersionedStreamingResponses() {
+        // should not be instantiated
+    }
+
+    /**
+     * Writes the elements as a single JSON array.
+     */
+    public static <T> StreamingResponseBody jsonArray(VersioningHttpMessageConverter converter, Iterable<? extends T> elements, Class<T> elementType) {
+        return streaming(converter, elements.iterator(), elementType, false);
+    }
+
+    /**
+     * Writes the elements as a single JSON array. The stream is closed when the response has been written.
+     */
+    public static <T> StreamingResponseBody jsonArray(VersioningHttpMessageConverter converter, Stream<? extends T> elements, Class<T> elementType) {
+        return closing(streaming(converter, elements.iterator(), elementType, false), elements);
+    }
+
+    /**
+     * Writes the elements as newline delimited JSON, one element per line.
+     */
+    public static <T> StreamingResponseBody ndjson(VersioningHttpMessageConverter converter, Iterable<? extends T> elements, Class<T> elementType) {
+        return streaming(converter, elements.iterator(), elementType, true);
+    }
+
+    /**
+     * Writes the elements as newline delimited JSON, one element per line. The stream is closed when the
+     * response has been written.
+     */
+    public static <T> StreamingResponseBody ndjson(VersioningHttpMessageConverter converter, Stream<? extends T> elements, Class<T> elementType) {
+        return closing(streaming(converter, elements.iterator(), elementType, true), elements);
+    }
+
+    private static StreamingResponseBody streaming(VersioningHttpMessageConverter converter, Iterator<?> elements, Class<?> elementType, boolean newlineDelimited) {
+        Object version = converter.requireSerializeToVersion();
+        VersionContext.Snapshot snapshot = VersionContext.forResolvedVersion(version);
+        ObjectWriter writer = converter.getObjectMapper(version).writerFor(elementType)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        if (newlineDelimited) {
+            writer = writer.withRootValueSeparator("\n");
+        }
+        ObjectWriter elementWriter = writer;
+        Class<?> payloadClass = converter.isObserved(version) ? elementType : null;
+        return outputStream -> {
+            try {
+                snapshot.call(() -> {
+                    converter.serializationStarted(payloadClass, version);
+                    long start = System.nanoTime();
+                    try {
+                        write(elementWriter, outputStream, elements, newlineDelimited);
+                    } finally {
+                        converter.serializationFinished(payloadClass, version, start);
+                    }
+                    return null;
+                });
+            } catch (IOException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    private static void write(ObjectWriter writer, OutputStream outputStream, Iterator<?> elements, boolean newlineDelimited) throws IOException {
+        boolean empty = true;
+        try (SequenceWriter sequenceWriter = newlineDelimited ? writer.writeValues(outputStream) : writer.writeValuesAsArray(outputStream)) {
+            while (elements.hasNext()) {
+                sequenceWriter.write(elements.next());
+                empty = false;
+            }
+        }
+        if (newlineDelimited && !empty) {
+            outputStream.write('\n');
+        }
+        outputStream.flush();
+    }
+
+    private static StreamingResponseBody closing(StreamingResponseBody body, Stream<?> elements) {
+        return outputStream -> {
+            try (Stream<?> ignored = elements) {
+                body.writeTo(outputStream);
+            }
+        };
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Jackson message converter that resolves the API version before reading or writing a body.
+ * Works with object mappers for JSON as well as for the binary Smile and CBOR formats.
+ *
+ * When the set of versions is known up front, each version is handled by an object mapper of its own
+ * whose versioning module is fixed to that version. Jackson's serializer and deserializer caches then
+ * hold version specific instances that are reused across requests, and nothing in the object graph
+ * needs to ask for the version of the request. Requests on the latest version need no conversion and
+ * are handled by a plain object mapper, bypassing the versioning serializers and deserializers altogether.
+ * Create instances through {@link SpringVersioningModuleBuilder}.
+ */
+public class VersioningHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+    private final Map<Object, Delegate> delegates;
+    private final VersionResolutionStrategy<?> versionResolutionStrategy;
+    private final List<String> varyHeaders;
+    private final Object latestVersion;
+    private final VersioningMetrics versioningMetrics;
+    private final VersionedResponseCache responseCache;
+    private final ConversionListener conversionListener;
+
+    VersioningHttpMessageConverter(ObjectMapper versioningObjectMapper, Map<?, ObjectMapper> versionObjectMappers,
+                                   VersionResolutionStrategy<?> versionResolutionStrategy, Object latestVersion,
+                                   VersioningMetrics versioningMetrics, ExpiringLruCache<VersionedResponseCache.Key, byte[]> responseCache,
+                                   ConversionListener conversionListener) {
+        super(versioningObjectMapper);
+        List<MediaType> supportedMediaTypes = supportedMediaTypes(versioningObjectMapper);
+        setSupportedMediaTypes(supportedMediaTypes);
+        Map<Object, Delegate> delegates = new HashMap<>();
+        versionObjectMappers.forEach((version, objectMapper) -> {
+            Delegate delegate = new Delegate(objectMapper);
+            delegate.setSupportedMediaTypes(supportedMediaTypes);
+            delegates.put(version, delegate);
+        });
+        this.delegates = Collections.unmodifiableMap(delegates);
+        this.versionResolutionStrategy = versionResolutionStrategy;
+        this.varyHeaders = versionResolutionStrategy instanceof VaryingVersionResolutionStrategy
+                ? ((VaryingVersionResolutionStrategy) versionResolutionStrategy).getVaryHeaders()
+                : Collections.emptyList();
+        this.latestVersion = latestVersion;
+        this.versioningMetrics = versioningMetrics;
+        this.responseCache = responseCache == null ? null : new VersionedResponseCache(this, responseCache);
+        this.conversionListener = conversionListener;
+    }
+
+    /**
+     * The media types of the data format of the object mapper, so that Smile and CBOR backed object mappers
+     * get the media types of Spring's converters for those formats.
+     */
+    private static List<MediaType> supportedMediaTypes(ObjectMapper objectMapper) {
+        switch (objectMapper.getFactory().getFormatName()) {
+            case "Smile":
+                return Collections.singletonList(new MediaType("application", "x-jackson-smile"));
+            case "CBOR":
+                return Collections.singletonList(MediaType.APPLICATION_CBOR);
+            default:
+                return Arrays.asList(MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+        }
+    }
+
+    /**
+     * The response cache configured through
+     * {@link SpringVersioningModuleBuilder.ReadyForBuilding#withResponseCache(int, java.time.Duration)}.
+     */
+    public VersionedResponseCache getResponseCache() {
+        if (responseCache == null) {
+            throw new IllegalStateException("No response cache configured, see SpringVersioningModuleBuilder.withResponseCache");
+        }
+        return responseCache;
+    }
+
+    /**
+     * Captures the version context of the current request like {@link VersionContext#capture()}, but resolves the
+     * version of the request first, so that work submitted before anything has been converted gets it as well.
+     */
+    public VersionContext.Snapshot captureVersionContext() {
+        getSerializeToVersion();
+        return VersionContext.capture();
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException, HttpMessageNotReadableException {
+        Object version = getDeserializeToVersion();
+        Class<?> payloadClass = isObserved(version) ? payloadClass(clazz) : null;
+        deserializationStarted(payloadClass, version);
+        long start = System.nanoTime();
+        try {
+            Delegate delegate = delegate(version);
+            if (delegate != null) {
+                return delegate.readInternal(clazz, inputMessage);
+            } else {
+                return super.readInternal(clazz, inputMessage);
+            }
+        } finally {
+            deserializationFinished(payloadClass, version, start);
+        }
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException, HttpMessageNotReadableException {
+        Object version = getDeserializeToVersion();
+        Class<?> payloadClass = isObserved(version) ? payloadClass(type) : null;
+        deserializationStarted(payloadClass, version);
+        long start = System.nanoTime();
+        try {
+            Delegate delegate = delegate(version);
+            if (delegate != null) {
+                return delegate.read(type, contextClass, inputMessage);
+            } else {
+                return super.read(type, contextClass, inputMessage);
+            }
+        } finally {
+            deserializationFinished(payloadClass, version, start);
+        }
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException, HttpMessageNotWritableException {
+        Object version = getSerializeToVersion();
+        Class<?> payloadClass = isObserved(version) ? payloadClass(type != null ? type : object.getClass()) : null;
+        serializationStarted(payloadClass, version);
+        long start = System.nanoTime();
+        try {
+            Delegate delegate = delegate(version);
+            if (delegate != null) {
+                delegate.writeInternal(object, type, outputMessage);
+            } else {
+                super.writeInternal(object, type, outputMessage);
+            }
+        } finally {
+            serializationFinished(payloadClass, version, start);
+        }
+    }
+
+    /**
+     * The object mapper serializing bodies of the given version, the request resolving one if the version is not known.
+     */
+    ObjectMapper getObjectMapper(Object version) {
+        Delegate delegate = delegate(version);
+        return delegate != null ? delegate.getObjectMapper() : getObjectMapper();
+    }
+
+    /**
+     * The request headers the version of responses depends on.
+     */
+    List<String> getVaryHeaders() {
+        return varyHeaders;
+    }
+
+    /**
+     * Whether conversions to or from the given version are recorded, only then do the
+     * started and finished methods need a payload class.
+     */
+    boolean isObserved(Object version) {
+        return version != null && (versioningMetrics.isEnabled() || conversionListener != null);
+    }
+
+    void serializationStarted(Class<?> payloadClass, Object version) {
+        if (payloadClass != null && conversionListener != null) {
+            conversionListener.conversionStarted(payloadClass, latestVersion, version);
+        }
+    }
+
+    void serializationFinished(Class<?> payloadClass, Object version, long start) {
+        if (payloadClass != null) {
+            long nanos = System.nanoTime() - start;
+            versioningMetrics.serialized(payloadClass, latestVersion, version, nanos);
+            if (conversionListener != null) {
+                conversionListener.conversionFinished(payloadClass, latestVersion, version, nanos);
+            }
+        }
+    }
+
+    private void deserializationStarted(Class<?> payloadClass, Object version) {
+        if (payloadClass != null && conversionListener != null) {
+            conversionListener.conversionStarted(payloadClass, version, latestVersion);
+        }
+    }
+
+    private void deserializationFinished(Class<?> payloadClass, Object version, long start) {
+        if (payloadClass != null) {
+            long nanos = System.nanoTime() - start;
+            versioningMetrics.deserialized(payloadClass, version, latestVersion, nanos);
+            if (conversionListener != null) {
+                conversionListener.conversionFinished(payloadClass, version, latestVersion, nanos);
+            }
+        }
+    }
+
+    private Delegate delegate(Object version) {
+        return version == null ? null : delegates.get(version);
+    }
+
+    /**
+     * Like {@link #getSerializeToVersion()} but rejects requests without a known version.
+     */
+    Object requireSerializeToVersion() {
+        Object version = versionResolutionStrategy.getSerializeToVersion(null);
+        if (version == null) {
+            throw new IllegalStateException("The version can only be resolved during a request");
+        }
+        return version;
+    }
+
+    Object getSerializeToVersion() {
+        try {
+            return versionResolutionStrategy.getSerializeToVersion(null);
+        } catch (ResponseStatusException e) {
+            // Let the versioning serializers decide if the version is needed for this body
+            return null;
+        }
+    }
+
+    private Object getDeserializeToVersion() {
+        try {
+            return versionResolutionStrategy.getDeserializeToVersion(null);
+        } catch (ResponseStatusException e) {
+            return null;
+        }
+    }
+
+    private static Class<?> payloadClass(Type type) {
+        ResolvableType resolvableType = ResolvableType.forType(type);
+        if (resolvableType.isArray()) {
+            resolvableType = resolvableType.getComponentType();
+        } else if (Iterable.class.isAssignableFrom(resolvableType.toClass())) {
+            resolvableType = resolvableType.as(Iterable.class).getGeneric(0);
+        }
+        return resolvableType.toClass();
+    }
+
+    private static class Delegate extends MappingJackson2HttpMessageConverter {
+        Delegate(ObjectMapper objectMapper) {
+            super(objectMapper);
+        }
+
+        @Override
+        protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException, HttpMessageNotReadableException {
+            return super.readInternal(clazz, inputMessage);
+        }
+
+        @Override
+        protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException, HttpMessageNotWritableException {
+            super.writeInternal(object, type, outputMessage);
+        }
+    }
+}
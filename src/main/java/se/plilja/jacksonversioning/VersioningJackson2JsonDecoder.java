@@ -0,0 +1,61 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * JSON decoder for WebFlux that makes the version resolved by the web filter from
+ * {@link ReactiveVersionWebFilter#from(SpringVersioningModuleBuilder.ReadyForBuilding)} available while decoding.
+ *
+ * Single value request bodies are supported, request bodies decoded as a {@code Flux} are not.
+ */
+public class VersioningJackson2JsonDecoder extends Jackson2JsonDecoder {
+    public VersioningJackson2JsonDecoder(ObjectMapper objectMapper, MimeType... mimeTypes) {
+        super(objectMapper, mimeTypes);
+    }
+
+    @Override
+    public Mono<Object> decodeToMono(Publisher<DataBuffer> input, ResolvableType elementType,
+                                     MimeType mimeType, Map<String, Object> hints) {
+        return Mono.subscriberContext()
+                .flatMap(context -> super.decodeToMono(input, elementType, mimeType,
+                        ReactiveVersionWebFilter.withVersionHint(hints, context)));
+    }
+
+    @Override
+    public Object decode(DataBuffer dataBuffer, ResolvableType targetType,
+                         MimeType mimeType, Map<String, Object> hints) throws DecodingException {
+        return VersionContext.callWithVersion(ReactiveVersionWebFilter.versionHint(hints),
+                () -> super.decode(dataBuffer, targetType, mimeType, hints));
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+/**
+ * Receives measurements of version resolution and conversion. Resolution is reported once per request.
+ * See {@link MicrometerVersioningMetrics} for an implementation backed by Micrometer.
+ */
+public interface VersioningMetrics {
+    VersioningMetrics NOOP = new VersioningMetrics() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+
+        @Override
+        public void versionResolved(Object version) {
+        }
+
+        @Override
+        public void versionRejected(String reason) {
+        }
+
+        @Override
+        public void serialized(Class<?> type, Object fromVersion, Object toVersion, long nanos) {
+        }
+
+        @Override
+        public void deserialized(Class<?> type, Object fromVersion, Object toVersion, long nanos) {
+        }
+    };
+
+    boolean isEnabled();
+
+    void versionResolved(Object version);
+
+    void versionRejected(String reason);
+
+    void serialized(Class<?> type, Object fromVersion, Object toVersion, long nanos);
+
+    void deserialized(Class<?> type, Object fromVersion, Object toVersion, long nanos);
+}
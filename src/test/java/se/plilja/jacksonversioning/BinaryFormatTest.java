@@ -0,0 +1,142 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Import({TestApplication.class, BinaryFormatTest.TestConfig.class})
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class BinaryFormatTest {
+    private static final MediaType SMILE = new MediaType("application", "x-jackson-smile");
+    private static final String V1_CAR = "{\"id\":1,\"model\":\"Camry\",\"yearMade\":2020,\"owner\":{\"firstName\":\"Sten\",\"lastName\":\"Frisk\"},\"company\":\"Toyota\"}";
+    private static final String V3_CAR = "{\"id\":1,\"make\":\"Toyota\",\"model\":\"Camry\",\"yearMade\":2020,\"owner\":{\"socialSecurityNumber\":\"1234567890\",\"firstName\":\"Sten\",\"lastName\":\"Frisk\"}}";
+
+    @TestConfiguration
+    static class TestConfig {
+        @Bean
+        VersioningHttpMessageConverter smileHttpMessageConverter(ApplicationContext applicationContext) {
+            return SpringVersioningModuleBuilder.withEnumVersions(ApiVersion.class)
+                    .withVersionDeterminedByRequestHeader("API_VERSION")
+                    .withConvertersFromApplicationContext(applicationContext)
+                    .buildHttpMessageConverter(new ObjectMapper(new SmileFactory()));
+        }
+
+        @Bean
+        VersioningHttpMessageConverter cborHttpMessageConverter(ApplicationContext applicationContext) {
+            return SpringVersioningModuleBuilder.withEnumVersions(ApiVersion.class)
+                    .withVersionDeterminedByRequestHeader("API_VERSION")
+                    .withConvertersFromApplicationContext(applicationContext)
+                    .buildHttpMessageConverter(new ObjectMapper(new CBORFactory()));
+        }
+    }
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final RestTemplate restTemplate = new RestTemplate(Arrays.asList(
+            new MappingJackson2SmileHttpMessageConverter(), new MappingJackson2CborHttpMessageConverter()));
+
+    @ParameterizedTest
+    @ValueSource(strings = {"application/x-jackson-smile", "application/cbor"})
+    void getHistoricVersion(String mediaType) throws Exception {
+        HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.add("API_VERSION", ApiVersion.V1.toString());
+        httpHeaders.setAccept(Collections.singletonList(MediaType.parseMediaType(mediaType)));
+        Map<?, ?> actual = restTemplate.exchange(url("/cars/1"), HttpMethod.GET, new HttpEntity<>(httpHeaders), Map.class).getBody();
+        assertEquals(readMap(V1_CAR), actual);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"application/x-jackson-smile", "application/cbor"})
+    void postHistoricVersion(String mediaType) throws Exception {
+        Map<String, Object> request = readMap(V1_CAR);
+        request.remove("id");
+        HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.add("API_VERSION", ApiVersion.V1.toString());
+        httpHeaders.setContentType(MediaType.parseMediaType(mediaType));
+        httpHeaders.setAccept(Collections.singletonList(MediaType.parseMediaType(mediaType)));
+        Map<?, ?> posted = restTemplate.exchange(url("/cars"), HttpMethod.POST, new HttpEntity<>(request, httpHeaders), Map.class).getBody();
+        Object id = posted.get("id");
+
+        httpHeaders.set("API_VERSION", ApiVersion.V3.toString());
+        Map<?, ?> actual = restTemplate.exchange(url("/cars/" + id), HttpMethod.GET, new HttpEntity<>(httpHeaders), Map.class).getBody();
+        Map<String, Object> expected = readMap(V3_CAR);
+        expected.put("id", id);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void binaryFormatsConvertLikeJson() throws Exception {
+        Car car = objectMapper.readValue(V3_CAR, Car.class);
+        for (ObjectMapper format : Arrays.asList(new ObjectMapper(new SmileFactory()), new ObjectMapper(new CBORFactory()))) {
+            ObjectMapper versioningObjectMapper = format.copy().registerModule(SpringVersioningModuleBuilder.withEnumVersions(ApiVersion.class)
+                    .withVersionDeterminedByVersionContext()
+                    .withConvertersCreatedByReflection()
+                    .build());
+            byte[] v1 = VersionContext.forVersion(ApiVersion.V1).call(() -> versioningObjectMapper.writeValueAsBytes(car));
+            assertEquals(readMap(V1_CAR), format.readValue(v1, new TypeReference<HashMap<String, Object>>() {
+            }));
+            Car read = VersionContext.forVersion(ApiVersion.V1).call(() -> versioningObjectMapper.readValue(v1, Car.class));
+            assertEquals("Toyota", read.getMake());
+        }
+    }
+
+    private String url(String path) {
+        return String.format("http://localhost:%d%s", port, path);
+    }
+
+    private Map<String, Object> readMap(String json) throws Exception {
+        return objectMapper.readValue(json, new TypeReference<HashMap<String, Object>>() {
+        });
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class CachingConverterRepositoryTest {
+
+    @Test
+    void repeatedLookupsReturnTheCachedConverter() {
+        List<Class<?>> requested = new ArrayList<>();
+        VersionedConverterRepository<ApiVersion> delegate = converterClass -> {
+            requested.add(converterClass);
+            return new CarConverter();
+        };
+        CachingConverterRepository<ApiVersion> repository = new CachingConverterRepository<>(delegate);
+
+        VersionConverter<ApiVersion> first = repository.get(CarConverter.class);
+        VersionConverter<ApiVersion> second = repository.get(CarConverter.class);
+
+        assertSame(first, second);
+        assertEquals(1, requested.size());
+    }
+
+    @Test
+    void differentConvertersDoNotCollide() {
+        List<Class<?>> requested = new ArrayList<>();
+        VersionedConverterRepository<ApiVersion> delegate = converterClass -> {
+            requested.add(converterClass);
+            return converterClass == CarConverter.class ? new CarConverter() : new PersonConverter();
+        };
+        CachingConverterRepository<ApiVersion> repository = new CachingConverterRepository<>(delegate);
+
+        VersionConverter<ApiVersion> carConverter = repository.get(CarConverter.class);
+        VersionConverter<ApiVersion> personConverter = repository.get(PersonConverter.class);
+
+        assertNotSame(carConverter, personConverter);
+        assertEquals(CarConverter.class, carConverter.getClass());
+        assertEquals(PersonConverter.class, personConverter.getClass());
+        assertSame(carConverter, repository.get(CarConverter.class));
+        assertSame(personConverter, repository.get(PersonConverter.class));
+        assertEquals(2, requested.size());
+    }
+}
@@ -31,28 +31,29 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @RequestMapping("/cars")
 @RestController
 class CarController {
-    private final List<Car> cars = new ArrayList<>();
-    private int id = 1;
+    private final List<Car> cars = new CopyOnWriteArrayList<>();
+    private final AtomicInteger id = new AtomicInteger(1);
 
     CarController() {
         reset();
     }
 
     void reset() {
-        id = 1;
+        id.set(1);
         cars.clear();
         Car car = new Car();
         Person owner = new Person();
         owner.setFirstName("Sten");
         owner.setLastName("Frisk");
         owner.setSocialSecurityNumber("1234567890");
-        car.setId(id++);
+        car.setId(id.getAndIncrement());
         car.setOwner(owner);
         car.setMake("Toyota");
         car.setModel("Camry");
@@ -75,7 +76,7 @@ class CarController {
 
     @PostMapping("")
     Car addCar(@RequestBody Car car) {
-        car.setId(id++);
+        car.setId(id.getAndIncrement());
         cars.add(car);
         return car;
     }
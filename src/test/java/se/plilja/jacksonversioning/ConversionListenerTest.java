@@ -0,0 +1,189 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Import({TestApplication.class, ConversionListenerTest.TestConfig.class})
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ConversionListenerTest {
+
+    @TestConfiguration
+    static class TestConfig {
+        @Bean
+        ServerTimingConversionListener serverTimingConversionListener() {
+            return new ServerTimingConversionListener("X-Debug-Versioning");
+        }
+
+        @Bean
+        RecordingConversionListener recordingConversionListener() {
+            return new RecordingConversionListener();
+        }
+
+        @Bean
+        VersioningHttpMessageConverter versioningHttpMessageConverter(ApplicationContext applicationContext,
+                                                                      ServerTimingConversionListener serverTimingConversionListener,
+                                                                      RecordingConversionListener recordingConversionListener) {
+            return SpringVersioningModuleBuilder.withEnumVersions(ApiVersion.class)
+                    .withVersionDeterminedByRequestHeader("API_VERSION")
+                    .withConvertersFromApplicationContext(applicationContext)
+                    .withConversionListener(serverTimingConversionListener)
+                    .withConversionListener(recordingConversionListener)
+                    .buildHttpMessageConverter(new ObjectMapper());
+        }
+
+        @Bean
+        StreamingController streamingController(VersioningHttpMessageConverter versioningHttpMessageConverter) {
+            return new StreamingController(versioningHttpMessageConverter);
+        }
+    }
+
+    @RequestMapping("/streaming")
+    static class StreamingController {
+        private final VersioningHttpMessageConverter versioningHttpMessageConverter;
+
+        StreamingController(VersioningHttpMessageConverter versioningHttpMessageConverter) {
+            this.versioningHttpMessageConverter = versioningHttpMessageConverter;
+        }
+
+        @GetMapping(value = "/cars", produces = "application/x-ndjson")
+        StreamingResponseBody cars() {
+            Car car = new Car();
+            car.setId(1);
+            car.setMake("Toyota");
+            return VersionedStreamingResponses.ndjson(versioningHttpMessageConverter, Collections.singletonList(car), Car.class);
+        }
+
+        @GetMapping("/callable")
+        Callable<Car> callable() {
+            return () -> {
+                Car car = new Car();
+                car.setId(1);
+                car.setMake("Toyota");
+                return car;
+            };
+        }
+    }
+
+    static class RecordingConversionListener implements ConversionListener {
+        final List<String> events = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void conversionStarted(Class<?> type, Object fromVersion, Object toVersion) {
+            events.add(String.format("started %s %s %s", type.getSimpleName(), fromVersion, toVersion));
+        }
+
+        @Override
+        public void conversionFinished(Class<?> type, Object fromVersion, Object toVersion, long nanos) {
+            events.add(String.format("finished %s %s %s", type.getSimpleName(), fromVersion, toVersion));
+        }
+    }
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    private RecordingConversionListener recordingConversionListener;
+
+    private final RestTemplate restTemplate = new RestTemplate();
+
+    @BeforeEach
+    void setUp() {
+        recordingConversionListener.events.clear();
+    }
+
+    @Test
+    void listenersReceiveEvents() {
+        get("/cars/1", false);
+        assertEquals(2, recordingConversionListener.events.size());
+        assertEquals("started Car V3 V1", recordingConversionListener.events.get(0));
+        assertEquals("finished Car V3 V1", recordingConversionListener.events.get(1));
+
+        recordingConversionListener.events.clear();
+        get("/cars", false);
+        assertEquals("finished Car V3 V1", recordingConversionListener.events.get(1));
+    }
+
+    @Test
+    void serverTimingHeaderWhenDebugging() {
+        String serverTiming = get("/cars/1", true).getHeaders().getFirst(ServerTimingConversionListener.HEADER_NAME);
+        assertTrue(serverTiming.matches("versioning;dur=\\d+\\.\\d{3};desc=\"1 converted\""), serverTiming);
+    }
+
+    @Test
+    void listenersReceiveEventsOfStreamedResponse() {
+        ResponseEntity<String> response = get("/streaming/cars", true);
+
+        assertTrue(response.getBody().contains("\"company\":\"Toyota\""), response.getBody());
+        assertNull(response.getHeaders().getFirst(ServerTimingConversionListener.HEADER_NAME));
+        assertEquals("finished Car V3 V1", recordingConversionListener.events.get(1));
+    }
+
+    @Test
+    void asynchronousResponseIsNotTimed() {
+        ResponseEntity<String> response = get("/streaming/callable", true);
+
+        assertTrue(response.getBody().contains("\"company\":\"Toyota\""), response.getBody());
+        assertNull(response.getHeaders().getFirst(ServerTimingConversionListener.HEADER_NAME));
+    }
+
+    @Test
+    void noServerTimingHeaderWithoutDebugging() {
+        assertNull(get("/cars/1", false).getHeaders().getFirst(ServerTimingConversionListener.HEADER_NAME));
+    }
+
+    private ResponseEntity<String> get(String path, boolean debug) {
+        HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.add("API_VERSION", ApiVersion.V1.toString());
+        if (debug) {
+            httpHeaders.add("X-Debug-Versioning", "true");
+        }
+        return restTemplate.exchange(String.format("http://localhost:%d%s", port, path), HttpMethod.GET, new HttpEntity<>(httpHeaders), String.class);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DocumentMigratorTest {
+    private static final String V1_CAR = "{\"id\":%d,\"model\":\"Camry\",\"yearMade\":2020,\"owner\":{\"firstName\":\"Sten\",\"lastName\":\"Frisk\"},\"company\":\"Toyota\"}";
+    private static final String V3_CAR = "{\"id\":%d,\"make\":\"Toyota\",\"model\":\"Camry\",\"yearMade\":2020,\"owner\":{\"socialSecurityNumber\":\"1234567890\",\"firstName\":\"Sten\",\"lastName\":\"Frisk\"}}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final DocumentMigrator documentMigrator = SpringVersioningModuleBuilder.withEnumVersions(ApiVersion.class)
+            .withVersionDeterminedByVersionContext()
+            .withConvertersCreatedByReflection()
+            .buildDocumentMigrator(new ObjectMapper());
+
+    @Test
+    void migrateDocument() throws Exception {
+        String migrated = documentMigrator.migrate(String.format(V3_CAR, 1), Car.class, "V3", "V1");
+        assertEquals(readMap(String.format(V1_CAR, 1)), readMap(migrated));
+    }
+
+    @Test
+    void migrateNdjsonInOrder() throws Exception {
+        int documents = 3 * DocumentMigrator.CHUNK_SIZE + 17;
+        StringBuilder source = new StringBuilder();
+        for (int i = 1; i <= documents; i++) {
+            source.append(String.format(V3_CAR, i)).append('\n');
+        }
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        List<MigrationStatistics> progress = new ArrayList<>();
+        MigrationStatistics statistics = documentMigrator.withParallelism(4).migrateNdjson(
+                new ByteArrayInputStream(source.toString().getBytes(StandardCharsets.UTF_8)), target, Car.class, "V3", "V1", progress::add);
+
+        String[] lines = new String(target.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        assertEquals(documents, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals(readMap(String.format(V1_CAR, i + 1)), readMap(lines[i]));
+        }
+        assertEquals(documents, statistics.getDocuments());
+        assertEquals(target.size(), statistics.getBytes());
+        assertEquals(4, progress.size());
+        assertTrue(statistics.getDocumentsPerSecond() > 0);
+    }
+
+    @Test
+    void unknownVersion() {
+        assertThrows(IllegalArgumentException.class, () -> documentMigrator.migrate(String.format(V3_CAR, 1), Car.class, "V3", "V9"));
+    }
+
+    @Test
+    void versionFromVersionContext() throws Exception {
+        ObjectMapper versioningObjectMapper = new ObjectMapper().registerModule(SpringVersioningModuleBuilder.withEnumVersions(ApiVersion.class)
+                .withVersionDeterminedByVersionContext()
+                .withConvertersCreatedByReflection()
+                .build());
+        Car car = VersionContext.forVersion(ApiVersion.V1).call(() -> versioningObjectMapper.readValue(String.format(V1_CAR, 1), Car.class));
+        assertEquals("Toyota", car.getMake());
+    }
+
+    private Map<String, Object> readMap(String json) throws Exception {
+        return objectMapper.readValue(json, new TypeReference<Map<String, Object>>() {
+        });
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ExpiringLruCacheTest {
+    private final AtomicLong now = new AtomicLong();
+    private final ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(2, 100, now::get);
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        cache.put("a", "1");
+        cache.put("b", "2");
+        assertEquals("1", cache.get("a"));
+        cache.put("c", "3");
+        assertEquals("1", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("3", cache.get("c"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void expiresAfterTimeToLive() {
+        cache.put("a", "1");
+        now.addAndGet(99);
+        assertEquals("1", cache.get("a"));
+        now.addAndGet(1);
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void entriesWithoutTimeToLiveDoNotExpire() {
+        ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(2);
+        cache.put("a", "1");
+        assertEquals("1", cache.get("a"));
+        cache.put("b", "2");
+        cache.put("c", "3");
+        assertNull(cache.get("a"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void concurrentMissesComputeOnce() throws Exception {
+        AtomicInteger computations = new AtomicInteger();
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[64];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = CompletableFuture.runAsync(() -> assertEquals("1", cache.computeIfAbsent("a", key -> {
+                    computations.incrementAndGet();
+                    return "1";
+                })), executorService);
+            }
+            CompletableFuture.allOf(futures).get();
+        } finally {
+            executorService.shutdownNow();
+        }
+        assertEquals(1, computations.get());
+        assertEquals(1, cache.size());
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives concurrent requests on random versions and checks that every response is in the version
+ * asked for, so that no request ever sees the version of another. Reports throughput and latency
+ * per version. Excluded from the default build, run with {@code mvn test -Pload-tests}.
+ */
+@Tag("load")
+abstract class LoadTest {
+    private static final int REQUESTS = 10_000;
+    private static final int CONCURRENCY = 200;
+    private static final TypeReference<HashMap<String, Object>> MAP_TYPE_REFERENCE = new TypeReference<HashMap<String, Object>>() {
+    };
+
+    @TestConfiguration
+    static class LoadTestConfig {
+        @Bean
+        ObjectMapper loadTestObjectMapper(ApplicationContext applicationContext) {
+            VersioningModule versioningModule = SpringVersioningModuleBuilder.withEnumVersions(ApiVersion.class)
+                    .withVersionDeterminedByRequestHeader("API_VERSION")
+                    .withConvertersFromApplicationContext(applicationContext)
+                    .build();
+            return new ObjectMapper().registerModule(versioningModule);
+        }
+    }
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    private CarController carController;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final RestTemplate restTemplate = new RestTemplate();
+
+    @AfterEach
+    void tearDown() {
+        carController.reset();
+    }
+
+    @Test
+    void concurrentRequestsOnMixedVersions() throws Exception {
+        Map<ApiVersion, Map<String, Object>> expectedCars = new EnumMap<>(ApiVersion.class);
+        expectedCars.put(ApiVersion.V1, readMap("{\"id\":1,\"model\":\"Camry\",\"yearMade\":2020,\"owner\":{\"firstName\":\"Sten\",\"lastName\":\"Frisk\"},\"company\":\"Toyota\"}"));
+        expectedCars.put(ApiVersion.V2, readMap("{\"id\":1,\"model\":\"Camry\",\"yearMade\":2020,\"owner\":{\"socialSecurityNumber\":\"1234567890\",\"firstName\":\"Sten\",\"lastName\":\"Frisk\"},\"company\":\"Toyota\"}"));
+        expectedCars.put(ApiVersion.V3, readMap("{\"id\":1,\"make\":\"Toyota\",\"model\":\"Camry\",\"yearMade\":2020,\"owner\":{\"socialSecurityNumber\":\"1234567890\",\"firstName\":\"Sten\",\"lastName\":\"Frisk\"}}"));
+        Map<ApiVersion, Queue<Long>> latencies = new EnumMap<>(ApiVersion.class);
+        for (ApiVersion version : ApiVersion.values()) {
+            latencies.put(version, new ConcurrentLinkedQueue<>());
+        }
+
+        ExecutorService clients = Executors.newFixedThreadPool(CONCURRENCY);
+        List<Future<?>> responses = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            ApiVersion version = ApiVersion.values()[ThreadLocalRandom.current().nextInt(ApiVersion.values().length)];
+            boolean post = i % 4 == 0;
+            responses.add(clients.submit(() -> {
+                Map<String, Object> expected = new HashMap<>(expectedCars.get(version));
+                long requestStart = System.nanoTime();
+                Map<String, Object> actual;
+                if (post) {
+                    expected.remove("id");
+                    actual = request(HttpMethod.POST, "/cars", expected, version);
+                    actual.remove("id");
+                } else {
+                    actual = request(HttpMethod.GET, "/cars/1", null, version);
+                }
+                latencies.get(version).add(System.nanoTime() - requestStart);
+                assertEquals(expected, actual, String.format("Response to %s request on %s", post ? "POST" : "GET", version));
+                return null;
+            }));
+        }
+        for (Future<?> response : responses) {
+            response.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        clients.shutdown();
+        assertTrue(clients.awaitTermination(10, TimeUnit.SECONDS));
+
+        System.out.printf("%s: %d requests in %.2f s, %.0f requests/s%n", getClass().getSimpleName(), REQUESTS, elapsed / 1e9, REQUESTS * 1e9 / elapsed);
+        for (ApiVersion version : ApiVersion.values()) {
+            List<Long> versionLatencies = new ArrayList<>(latencies.get(version));
+            Collections.sort(versionLatencies);
+            System.out.printf("  %s: %d requests, p50 %.2f ms, p99 %.2f ms%n", version, versionLatencies.size(),
+                    percentile(versionLatencies, 50) / 1e6, percentile(versionLatencies, 99) / 1e6);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> request(HttpMethod method, String path, Object body, ApiVersion version) {
+        HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.add("API_VERSION", version.toString());
+        return restTemplate.exchange(String.format("http://localhost:%d%s", port, path), method, new HttpEntity<>(body, httpHeaders), HashMap.class).getBody();
+    }
+
+    private static long percentile(List<Long> sorted, int percentile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        return sorted.get(Math.min(sorted.size() - 1, sorted.size() * percentile / 100));
+    }
+
+    private Map<String, Object> readMap(String json) throws Exception {
+        return objectMapper.readValue(json, MAP_TYPE_REFERENCE);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@Import({TestApplication.class, MediaTypeTest.TestConfig.class})
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class MediaTypeTest extends RequestTest {
+
+    @TestConfiguration
+    static class TestConfig {
+        @Bean
+        ObjectMapper mediaTypeObjectMapper(ApplicationContext applicationContext) {
+            VersioningModule versioningModule = SpringVersioningModuleBuilder.withEnumVersions(ApiVersion.class)
+                    .withVersionDeterminedByMediaType("test")
+                    .withConvertersFromApplicationContext(applicationContext)
+                    .build();
+            return new ObjectMapper().registerModule(versioningModule);
+        }
+    }
+
+    @Override
+    protected <T> T get(String url, String apiVersion, Class<T> returnType) {
+        HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.add(HttpHeaders.ACCEPT, mediaType(apiVersion));
+        HttpEntity<?> requestEntity = new HttpEntity<>(httpHeaders);
+        return restTemplate.exchange(url, HttpMethod.GET, requestEntity, returnType).getBody();
+    }
+
+    @Override
+    protected <T> ResponseEntity<T> post(String url, Object body, String apiVersion, Class<T> returnType) {
+        HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.add(HttpHeaders.ACCEPT, mediaType(apiVersion));
+        httpHeaders.add(HttpHeaders.CONTENT_TYPE, mediaType(apiVersion));
+        HttpEntity<?> requestEntity = new HttpEntity<>(body, httpHeaders);
+        return restTemplate.exchange(url, HttpMethod.POST, requestEntity, returnType);
+    }
+
+    @Test
+    void acceptAndContentTypeVersionsDiffer() {
+        Map<String, Object> body = new HashMap<>();
+        body.put("model", "Camry");
+        body.put("yearMade", 2020);
+        body.put("company", "Toyota");
+        HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.add(HttpHeaders.ACCEPT, mediaType("V3"));
+        httpHeaders.add(HttpHeaders.CONTENT_TYPE, mediaType("V1"));
+
+        Map<?, ?> response = restTemplate.exchange(String.format("http://localhost:%d/cars", port), HttpMethod.POST,
+                new HttpEntity<>(body, httpHeaders), Map.class).getBody();
+
+        assertEquals("Toyota", response.get("make"));
+        assertFalse(response.containsKey("company"));
+    }
+
+    @Test
+    void mostPreferredAcceptedVersionIsUsed() {
+        HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.add(HttpHeaders.ACCEPT, String.format("%s;q=0.5, %s", mediaType("V3"), mediaType("V1")));
+
+        Map<?, ?> response = restTemplate.exchange(String.format("http://localhost:%d/cars/1", port), HttpMethod.GET,
+                new HttpEntity<>(httpHeaders), Map.class).getBody();
+
+        assertEquals("Toyota", response.get("company"));
+        assertFalse(response.containsKey("make"));
+    }
+
+    private static String mediaType(String apiVersion) {
+        return String.format("application/vnd.test.%s+json", apiVersion.toLowerCase());
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MediaTypeVersionResolutionStrategyTest {
+    private static final String LEGITIMATE_HEADER = "application/vnd.test.v2+json";
+
+    private final MediaTypeVersionResolutionStrategy<ApiVersion> versionResolutionStrategy =
+            new MediaTypeVersionResolutionStrategy<>("test", VersionLookupTable.forEnum(ApiVersion.class, false), VersioningMetrics.NOOP);
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void legitimateHeadersStayCachedAfterFlood() {
+        assertEquals(ApiVersion.V2, resolve(LEGITIMATE_HEADER));
+        for (int i = 0; i < 4 * MediaTypeVersionResolutionStrategy.MAX_CACHED_HEADERS; i++) {
+            String unknownVersion = "application/vnd.test.v" + (i + 4) + "+json";
+            String noVersion = "application/json;junk=" + i;
+            assertThrows(ResponseStatusException.class, () -> resolve(unknownVersion));
+            assertThrows(ResponseStatusException.class, () -> resolve(noVersion));
+            assertEquals(ApiVersion.V1, resolve("application/vnd.test.v1+json;junk=" + i));
+            assertEquals(ApiVersion.V2, resolve(LEGITIMATE_HEADER));
+        }
+
+        assertTrue(versionResolutionStrategy.isCached(LEGITIMATE_HEADER));
+        assertEquals(MediaTypeVersionResolutionStrategy.MAX_CACHED_HEADERS, versionResolutionStrategy.cachedHeaderCount());
+    }
+
+    private ApiVersion resolve(String accept) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.ACCEPT, accept);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        try {
+            return versionResolutionStrategy.getSerializeToVersion(null);
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+}
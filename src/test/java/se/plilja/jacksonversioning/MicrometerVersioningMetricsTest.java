@@ -0,0 +1,77 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MicrometerVersioningMetricsTest {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final VersionResolutionStrategy<ApiVersion> versionResolutionStrategy = new RequestHeaderVersionResolutionStrategy<>(
+            "API_VERSION", VersionLookupTable.forEnum(ApiVersion.class, false), new MicrometerVersioningMetrics(meterRegistry));
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void countsEachRequestOnce() {
+        bindRequest("V2");
+        versionResolutionStrategy.getSerializeToVersion(null);
+        versionResolutionStrategy.getSerializeToVersion(null);
+        bindRequest("V2");
+        versionResolutionStrategy.getDeserializeToVersion(null);
+
+        assertEquals(2.0, meterRegistry.get(MicrometerVersioningMetrics.REQUESTS).tag("version", "V2").counter().count());
+    }
+
+    @Test
+    void countsRejections() {
+        bindRequest("UNKNOWN");
+        assertThrows(ResponseStatusException.class, () -> versionResolutionStrategy.getSerializeToVersion(null));
+        assertThrows(ResponseStatusException.class, () -> versionResolutionStrategy.getSerializeToVersion(null));
+        bindRequest(null);
+        assertThrows(ResponseStatusException.class, () -> versionResolutionStrategy.getSerializeToVersion(null));
+
+        assertEquals(1.0, meterRegistry.get(MicrometerVersioningMetrics.REJECTIONS).tag("reason", "unknown").counter().count());
+        assertEquals(1.0, meterRegistry.get(MicrometerVersioningMetrics.REJECTIONS).tag("reason", "missing").counter().count());
+    }
+
+    private static void bindRequest(String version) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        if (version != null) {
+            request.addHeader("API_VERSION", version);
+        }
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+}
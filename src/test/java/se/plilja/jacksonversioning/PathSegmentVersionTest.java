@@ -0,0 +1,124 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static se.plilja.jacksonversioning.VersionSource.latestVersion;
+import static se.plilja.jacksonversioning.VersionSource.pathSegment;
+import static se.plilja.jacksonversioning.VersionSource.requestHeader;
+
+@Import({TestApplication.class, PathSegmentVersionTest.TestConfig.class})
+@SpringBootTest
+@AutoConfigureMockMvc
+class PathSegmentVersionTest {
+
+    @TestConfiguration
+    static class TestConfig {
+        @Bean
+        ObjectMapper pathSegmentObjectMapper(ApplicationContext applicationContext) {
+            VersioningModule versioningModule = SpringVersioningModuleBuilder.withEnumVersions(ApiVersion.class)
+                    .withCaseInsensitiveVersions()
+                    .withVersionDeterminedByFirstOf(pathSegment(), requestHeader("API_VERSION"), latestVersion())
+                    .withConvertersFromApplicationContext(applicationContext)
+                    .build();
+            return new ObjectMapper().registerModule(versioningModule);
+        }
+
+        @Bean
+        VersionedPathController versionedPathController(CarController carController) {
+            return new VersionedPathController(carController);
+        }
+    }
+
+    static class VersionedPathController {
+        private final CarController carController;
+
+        VersionedPathController(CarController carController) {
+            this.carController = carController;
+        }
+
+        @ResponseBody
+        @GetMapping("/{version}/cars/{id}")
+        Car getCarById(@PathVariable("version") String version, @PathVariable("id") int id) {
+            return carController.getCarById(id);
+        }
+
+        @ResponseBody
+        @GetMapping("/showroom/{name}/cars/{id}")
+        Car getShowroomCarById(@PathVariable("name") String name, @PathVariable("id") int id) {
+            return carController.getCarById(id);
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void versionInFirstPathSegment() throws Exception {
+        mockMvc.perform(get("/v1/cars/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.company").value("Toyota"))
+                .andExpect(jsonPath("$.make").doesNotExist());
+    }
+
+    @Test
+    void pathSegmentTakesPrecedenceOverHeader() throws Exception {
+        mockMvc.perform(get("/v2/cars/1").header("API_VERSION", "V3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.company").value("Toyota"));
+    }
+
+    @Test
+    void versionLikeSegmentFurtherDownThePathIsIgnored() throws Exception {
+        mockMvc.perform(get("/showroom/v1/cars/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.make").value("Toyota"))
+                .andExpect(jsonPath("$.company").doesNotExist());
+        mockMvc.perform(get("/showroom/v3/cars/1").header("API_VERSION", "V1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.company").value("Toyota"));
+    }
+
+    @Test
+    void unversionedPathFallsBackToLatestVersion() throws Exception {
+        mockMvc.perform(get("/cars/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.make").value("Toyota"));
+    }
+}
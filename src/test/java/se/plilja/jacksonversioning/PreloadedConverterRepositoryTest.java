@@ -0,0 +1,113 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PreloadedConverterRepositoryTest {
+
+    @Test
+    void convertersAreResolvedUpFront() {
+        List<Class<?>> requested = new ArrayList<>();
+        CarConverter carConverter = new CarConverter();
+        PersonConverter personConverter = new PersonConverter();
+        VersionedConverterRepository<ApiVersion> delegate = converterClass -> {
+            requested.add(converterClass);
+            return converterClass == CarConverter.class ? carConverter : personConverter;
+        };
+
+        PreloadedConverterRepository<ApiVersion> repository = PreloadedConverterRepository.fromPackages(delegate, "se.plilja.jacksonversioning");
+
+        assertEquals(2, requested.size());
+        assertTrue(requested.contains(CarConverter.class));
+        assertTrue(requested.contains(PersonConverter.class));
+        assertSame(carConverter, repository.get(CarConverter.class));
+        assertSame(personConverter, repository.get(PersonConverter.class));
+        assertEquals(2, requested.size());
+    }
+
+    @Test
+    void convertersAreResolvedFromIndex(@TempDir Path classPathRoot) throws Exception {
+        Path index = classPathRoot.resolve(PreloadedConverterRepository.INDEX);
+        Files.createDirectories(index.getParent());
+        Files.write(index, Collections.singletonList(Car.class.getName()), StandardCharsets.UTF_8);
+        List<Class<?>> requested = new ArrayList<>();
+        VersionedConverterRepository<ApiVersion> delegate = converterClass -> {
+            requested.add(converterClass);
+            return new CarConverter();
+        };
+
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{classPathRoot.toUri().toURL()}, contextClassLoader)) {
+            thread.setContextClassLoader(classLoader);
+            assertTrue(PreloadedConverterRepository.isIndexPresent());
+            PreloadedConverterRepository.fromIndex(delegate);
+        } finally {
+            thread.setContextClassLoader(contextClassLoader);
+        }
+
+        assertEquals(Collections.singletonList(CarConverter.class), requested);
+    }
+
+    @Test
+    void onlySingletonConvertersOfTheApplicationContextAreKept() {
+        GenericApplicationContext applicationContext = new GenericApplicationContext();
+        applicationContext.registerBean(CarConverter.class, beanDefinition -> beanDefinition.setScope(BeanDefinition.SCOPE_PROTOTYPE));
+        applicationContext.registerBean(PersonConverter.class);
+        applicationContext.refresh();
+
+        PreloadedConverterRepository<ApiVersion> repository = PreloadedConverterRepository.fromPackages(
+                new ApplicationContextConverterRepository<>(applicationContext), "se.plilja.jacksonversioning");
+
+        assertNotSame(repository.get(CarConverter.class), repository.get(CarConverter.class));
+        assertSame(applicationContext.getBean(PersonConverter.class), repository.get(PersonConverter.class));
+    }
+
+    @Test
+    void missingConverterFailsUpFront() {
+        VersionedConverterRepository<ApiVersion> delegate = converterClass -> {
+            throw new IllegalArgumentException("No such converter");
+        };
+
+        assertThrows(IllegalStateException.class, () -> PreloadedConverterRepository.fromPackages(delegate, "se.plilja.jacksonversioning"));
+    }
+}
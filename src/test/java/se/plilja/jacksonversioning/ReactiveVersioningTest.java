@@ -0,0 +1,148 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ReactiveVersioningTest {
+    private static final DefaultDataBufferFactory BUFFER_FACTORY = new DefaultDataBufferFactory();
+    private static final ResolvableType CAR_TYPE = ResolvableType.forClass(Car.class);
+
+    private final SpringVersioningModuleBuilder.ReadyForBuilding versioning = SpringVersioningModuleBuilder.withEnumVersions(ApiVersion.class)
+            .withVersionFromReactiveHeader("API_VERSION")
+            .withConvertersCreatedByReflection();
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(versioning.build());
+    private final WebFilter webFilter = ReactiveVersionWebFilter.from(versioning);
+    private final VersioningJackson2JsonEncoder encoder = new VersioningJackson2JsonEncoder(objectMapper);
+    private final VersioningJackson2JsonDecoder decoder = new VersioningJackson2JsonDecoder(objectMapper);
+
+    @Test
+    void versionIsPropagatedAcrossTheFilter() {
+        AtomicReference<Object> version = new AtomicReference<>();
+
+        filter("V2", exchange -> Mono.subscriberContext()
+                .doOnNext(context -> version.set(context.get(ReactiveVersionWebFilter.VERSION_KEY)))
+                .then()).block();
+
+        assertEquals(ApiVersion.V2, version.get());
+    }
+
+    @Test
+    void encodeAndDecodeHistoricVersion() throws Exception {
+        AtomicReference<String> json = new AtomicReference<>();
+        AtomicReference<Object> car = new AtomicReference<>();
+
+        filter("V1", exchange -> encoder.encode(Mono.just(car()), BUFFER_FACTORY, CAR_TYPE, MediaType.APPLICATION_JSON, Collections.emptyMap())
+                .map(ReactiveVersioningTest::asString)
+                .doOnNext(json::set)
+                .then()).block();
+        filter("V1", exchange -> decoder.decodeToMono(Flux.just(asBuffer(json.get())), CAR_TYPE, MediaType.APPLICATION_JSON, Collections.emptyMap())
+                .doOnNext(car::set)
+                .then()).block();
+
+        Map<?, ?> encoded = objectMapper.readValue(json.get(), Map.class);
+        assertEquals("Toyota", encoded.get("company"));
+        assertFalse(encoded.containsKey("make"));
+        assertEquals("Toyota", ((Car) car.get()).getMake());
+        assertEquals("Camry", ((Car) car.get()).getModel());
+    }
+
+    @Test
+    void missingVersionHeader() {
+        RuntimeException e = assertThrows(RuntimeException.class, () ->
+                filter(null, exchange -> encoder.encode(Mono.just(car()), BUFFER_FACTORY, CAR_TYPE, MediaType.APPLICATION_JSON, Collections.emptyMap())
+                        .then()).block());
+
+        assertEquals(HttpStatus.BAD_REQUEST, responseStatus(e).getStatus());
+    }
+
+    @Test
+    void unknownVersionHeader() {
+        AtomicReference<Boolean> chainCalled = new AtomicReference<>(false);
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () ->
+                filter("UNKNOWN", exchange -> Mono.fromRunnable(() -> chainCalled.set(true))).block());
+
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatus());
+        assertFalse(chainCalled.get());
+    }
+
+    private Mono<Void> filter(String version, WebFilterChain chain) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/cars/1");
+        if (version != null) {
+            request.header("API_VERSION", version);
+        }
+        return webFilter.filter(MockServerWebExchange.from(request), chain);
+    }
+
+    private static ResponseStatusException responseStatus(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ResponseStatusException) {
+                return (ResponseStatusException) cause;
+            }
+        }
+        throw new AssertionError("Expected a ResponseStatusException", e);
+    }
+
+    private static Car car() {
+        Car car = new Car();
+        car.setId(1);
+        car.setMake("Toyota");
+        car.setModel("Camry");
+        car.setYearMade(2020);
+        return car;
+    }
+
+    private static String asString(DataBuffer buffer) {
+        String result = buffer.toString(StandardCharsets.UTF_8);
+        DataBufferUtils.release(buffer);
+        return result;
+    }
+
+    private static DataBuffer asBuffer(String json) {
+        return BUFFER_FACTORY.wrap(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
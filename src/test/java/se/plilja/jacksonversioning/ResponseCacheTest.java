@@ -0,0 +1,214 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Import({TestApplication.class, ResponseCacheTest.TestConfig.class})
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ResponseCacheTest {
+
+    @TestConfiguration
+    static class TestConfig {
+        @Bean
+        VersioningHttpMessageConverter versioningHttpMessageConverter(ApplicationContext applicationContext) {
+            return SpringVersioningModuleBuilder.withEnumVersions(ApiVersion.class)
+                    .withVersionDeterminedByRequestHeader("API_VERSION")
+                    .withConvertersFromApplicationContext(applicationContext)
+                    .withResponseCache(100, Duration.ofMinutes(1))
+                    .buildHttpMessageConverter(new ObjectMapper());
+        }
+
+        @Bean
+        CachedCarController cachedCarController(CarController carController, VersioningHttpMessageConverter versioningHttpMessageConverter) {
+            return new CachedCarController(carController, versioningHttpMessageConverter.getResponseCache());
+        }
+    }
+
+    @RequestMapping("/cached/cars")
+    static class CachedCarController {
+        private final CarController carController;
+        private final VersionedResponseCache responseCache;
+        private final AtomicInteger serialized = new AtomicInteger();
+
+        CachedCarController(CarController carController, VersionedResponseCache responseCache) {
+            this.carController = carController;
+            this.responseCache = responseCache;
+        }
+
+        @GetMapping("/{id}")
+        ResponseEntity<byte[]> getCarById(@PathVariable("id") int id, @RequestParam("revision") int revision, WebRequest request) {
+            return responseCache.get(request, "car/" + id, revision, () -> {
+                serialized.incrementAndGet();
+                return carController.getCarById(id);
+            });
+        }
+    }
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private CachedCarController cachedCarController;
+
+    private final RestTemplate restTemplate = new RestTemplate();
+
+    @Test
+    void cachesPerVersion() throws Exception {
+        int serialized = cachedCarController.serialized.get();
+        ResponseEntity<String> v1 = get(ApiVersion.V1, 1, null);
+        ResponseEntity<String> v1Again = get(ApiVersion.V1, 1, null);
+        ResponseEntity<String> v3 = get(ApiVersion.V3, 1, null);
+
+        assertEquals(serialized + 2, cachedCarController.serialized.get());
+        assertEquals(v1.getBody(), v1Again.getBody());
+        assertEquals(v1.getHeaders().getETag(), v1Again.getHeaders().getETag());
+        assertNotEquals(v1.getHeaders().getETag(), v3.getHeaders().getETag());
+        assertEquals("\"V1-1-car/1\"", v1.getHeaders().getETag());
+        assertEquals("Toyota", readMap(v1.getBody()).get("company"));
+        assertEquals("Toyota", readMap(v3.getBody()).get("make"));
+    }
+
+    @Test
+    void notModifiedWithoutSerializing() {
+        String eTag = get(ApiVersion.V2, 2, null).getHeaders().getETag();
+        int serialized = cachedCarController.serialized.get();
+
+        ResponseEntity<String> notModified = get(ApiVersion.V2, 2, eTag);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+        assertNull(notModified.getBody());
+        assertEquals(serialized, cachedCarController.serialized.get());
+        assertEquals(HttpStatus.OK, get(ApiVersion.V1, 2, eTag).getStatusCode());
+        assertEquals(HttpStatus.OK, get(ApiVersion.V2, 3, eTag).getStatusCode());
+    }
+
+    @Test
+    void varyByVersionHeader() {
+        ResponseEntity<String> ok = get(ApiVersion.V1, 4, null);
+        ResponseEntity<String> notModified = get(ApiVersion.V1, 4, ok.getHeaders().getETag());
+
+        assertEquals(Collections.singletonList("API_VERSION"), ok.getHeaders().getVary());
+        assertEquals(Collections.singletonList("API_VERSION"), notModified.getHeaders().getVary());
+    }
+
+    @Test
+    void contentTypeFollowsAccept() {
+        MediaType vendorMediaType = MediaType.parseMediaType("application/vnd.test+json");
+        assertEquals(vendorMediaType, get(ApiVersion.V1, 5, null, "application/vnd.test+json").getHeaders().getContentType());
+        assertEquals(MediaType.APPLICATION_JSON, get(ApiVersion.V1, 5, null, "*/*").getHeaders().getContentType());
+
+        HttpClientErrorException e = assertThrows(HttpClientErrorException.class, () -> get(ApiVersion.V1, 5, null, "text/html"));
+        assertEquals(HttpStatus.NOT_ACCEPTABLE, e.getStatusCode());
+    }
+
+    @Test
+    void concurrentMissesSerializeOnce() throws Exception {
+        int serialized = cachedCarController.serialized.get();
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[16];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = CompletableFuture.runAsync(() -> assertEquals(HttpStatus.OK, get(ApiVersion.V2, 6, null).getStatusCode()), executorService);
+            }
+            CompletableFuture.allOf(futures).get();
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        assertEquals(serialized + 1, cachedCarController.serialized.get());
+    }
+
+    @Test
+    void eTagPartsCanNotBeConfused() {
+        assertNotEquals(VersionedResponseCache.eTag("V1", "1-2", "car"), VersionedResponseCache.eTag("V1", "1", "2-car"));
+        assertNotEquals(VersionedResponseCache.eTag("V1", 1, "car\"1"), VersionedResponseCache.eTag("V1", 1, "car_1"));
+        assertEquals("\"V1-1-car%2D%C3%A5%22%201\"", VersionedResponseCache.eTag("V1", 1, "car-\u00e5\" 1"));
+    }
+
+    @Test
+    void keyRejectsMissingParts() {
+        assertThrows(NullPointerException.class, () -> new VersionedResponseCache.Key(null, 1, ApiVersion.V1));
+        assertThrows(NullPointerException.class, () -> new VersionedResponseCache.Key("car/1", null, ApiVersion.V1));
+        assertEquals(new VersionedResponseCache.Key("car/1", 1, ApiVersion.V1), new VersionedResponseCache.Key("car/1", 1, ApiVersion.V1));
+        assertEquals(new VersionedResponseCache.Key("car/1", 1, ApiVersion.V1).hashCode(), new VersionedResponseCache.Key("car/1", 1, ApiVersion.V1).hashCode());
+    }
+
+    private ResponseEntity<String> get(ApiVersion apiVersion, int revision, String ifNoneMatch) {
+        return get(apiVersion, revision, ifNoneMatch, null);
+    }
+
+    private ResponseEntity<String> get(ApiVersion apiVersion, int revision, String ifNoneMatch, String accept) {
+        HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.add("API_VERSION", apiVersion.toString());
+        if (ifNoneMatch != null) {
+            httpHeaders.setIfNoneMatch(ifNoneMatch);
+        }
+        if (accept != null) {
+            httpHeaders.set(HttpHeaders.ACCEPT, accept);
+        }
+        return restTemplate.exchange(String.format("http://localhost:%d/cached/cars/1?revision=%d", port, revision), HttpMethod.GET, new HttpEntity<>(httpHeaders), String.class);
+    }
+
+    private Map<String, Object> readMap(String json) throws Exception {
+        return objectMapper.readValue(json, new TypeReference<Map<String, Object>>() {
+        });
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Import({TestApplication.class, StreamingTest.TestConfig.class})
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class StreamingTest {
+    private static final int CAR_COUNT = 1000;
+
+    @TestConfiguration
+    static class TestConfig {
+        @Bean
+        VersioningHttpMessageConverter versioningHttpMessageConverter(ApplicationContext applicationContext) {
+            return SpringVersioningModuleBuilder.withEnumVersions(ApiVersion.class)
+                    .withVersionDeterminedByRequestHeader("API_VERSION")
+                    .withConvertersFromApplicationContext(applicationContext)
+                    .buildHttpMessageConverter(new ObjectMapper());
+        }
+
+        @Bean
+        ExportController exportController(VersioningHttpMessageConverter versioningHttpMessageConverter, ApplicationContext applicationContext) {
+            // Versions not known up front, serialized by the object mapper resolving the version of the request
+            VersioningHttpMessageConverter customVersionsHttpMessageConverter = SpringVersioningModuleBuilder.withCustomVersions(new EnumVersionsDescription<>(ApiVersion.class))
+                    .withVersionDeterminedByRequestHeader("API_VERSION")
+                    .withConvertersFromApplicationContext(applicationContext)
+                    .buildHttpMessageConverter(new ObjectMapper());
+            return new ExportController(versioningHttpMessageConverter, customVersionsHttpMessageConverter);
+        }
+    }
+
+    @RequestMapping("/export")
+    static class ExportController {
+        private final VersioningHttpMessageConverter versioningHttpMessageConverter;
+        private final VersioningHttpMessageConverter customVersionsHttpMessageConverter;
+
+        ExportController(VersioningHttpMessageConverter versioningHttpMessageConverter, VersioningHttpMessageConverter customVersionsHttpMessageConverter) {
+            this.versioningHttpMessageConverter = versioningHttpMessageConverter;
+            this.customVersionsHttpMessageConverter = customVersionsHttpMessageConverter;
+        }
+
+        @GetMapping(value = "/array", produces = "application/json")
+        StreamingResponseBody array() {
+            return VersionedStreamingResponses.jsonArray(versioningHttpMessageConverter, cars(), Car.class);
+        }
+
+        @GetMapping(value = "/ndjson", produces = "application/x-ndjson")
+        StreamingResponseBody ndjson() {
+            return VersionedStreamingResponses.ndjson(versioningHttpMessageConverter, cars().stream(), Car.class);
+        }
+
+        @GetMapping(value = "/empty", produces = "application/x-ndjson")
+        StreamingResponseBody empty() {
+            return VersionedStreamingResponses.ndjson(versioningHttpMessageConverter, Collections.<Car>emptyList(), Car.class);
+        }
+
+        @GetMapping(value = "/custom", produces = "application/x-ndjson")
+        StreamingResponseBody custom() {
+            return VersionedStreamingResponses.ndjson(customVersionsHttpMessageConverter, cars(), Car.class);
+        }
+
+        private static List<Car> cars() {
+            List<Car> cars = new ArrayList<>();
+            for (int i = 1; i <= CAR_COUNT; i++) {
+                Car car = new Car();
+                Person owner = new Person();
+                owner.setFirstName("Sten");
+                owner.setLastName("Frisk");
+                owner.setSocialSecurityNumber("1234567890");
+                car.setId(i);
+                car.setOwner(owner);
+                car.setMake("Toyota");
+                car.setModel("Camry");
+                car.setYearMade(2020);
+                cars.add(car);
+            }
+            return cars;
+        }
+    }
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final RestTemplate restTemplate = new RestTemplate();
+
+    @Test
+    void streamJsonArrayInHistoricVersion() throws Exception {
+        List<Map<String, Object>> cars = objectMapper.readValue(get("/export/array", ApiVersion.V1), new TypeReference<List<Map<String, Object>>>() {
+        });
+        assertEquals(CAR_COUNT, cars.size());
+        for (Map<String, Object> car : cars) {
+            assertEquals(expectedV1Car(car.get("id")), car);
+        }
+    }
+
+    @Test
+    void streamNdjsonInHistoricVersion() throws Exception {
+        String[] lines = get("/export/ndjson", ApiVersion.V1).split("\n");
+        assertEquals(CAR_COUNT, lines.length);
+        for (String line : lines) {
+            Map<String, Object> car = objectMapper.readValue(line, new TypeReference<Map<String, Object>>() {
+            });
+            assertEquals(expectedV1Car(car.get("id")), car);
+        }
+    }
+
+    @Test
+    void streamNdjsonInLatestVersion() throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        for (String line : get("/export/ndjson", ApiVersion.V3).split("\n")) {
+            Map<String, Object> car = objectMapper.readValue(line, new TypeReference<Map<String, Object>>() {
+            });
+            assertEquals("Toyota", car.get("make"));
+            ids.add((Integer) car.get("id"));
+        }
+        assertEquals(IntStream.rangeClosed(1, CAR_COUNT).boxed().collect(Collectors.toList()), ids);
+    }
+
+    @Test
+    void streamNdjsonInHistoricVersionNotKnownUpFront() throws Exception {
+        String[] lines = get("/export/custom", ApiVersion.V1).split("\n");
+        assertEquals(CAR_COUNT, lines.length);
+        for (String line : lines) {
+            Map<String, Object> car = objectMapper.readValue(line, new TypeReference<Map<String, Object>>() {
+            });
+            assertEquals(expectedV1Car(car.get("id")), car);
+        }
+    }
+
+    @Test
+    void emptyNdjsonHasNoLines() {
+        assertNull(get("/export/empty", ApiVersion.V1));
+    }
+
+    @Test
+    void missingVersionIsRejectedBeforeStreaming() {
+        HttpStatusCodeException e = assertThrows(HttpStatusCodeException.class, () -> get("/export/ndjson", null));
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+    }
+
+    @Test
+    void unknownVersionIsRejectedBeforeStreaming() {
+        HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.add("API_VERSION", "UNKNOWN");
+        HttpStatusCodeException e = assertThrows(HttpStatusCodeException.class, () -> restTemplate.exchange(
+                String.format("http://localhost:%d/export/array", port), HttpMethod.GET, new HttpEntity<>(httpHeaders), String.class));
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+    }
+
+    private String get(String path, ApiVersion apiVersion) {
+        HttpHeaders httpHeaders = new HttpHeaders();
+        if (apiVersion != null) {
+            httpHeaders.add("API_VERSION", apiVersion.toString());
+        }
+        return restTemplate.exchange(String.format("http://localhost:%d%s", port, path), HttpMethod.GET, new HttpEntity<>(httpHeaders), String.class).getBody();
+    }
+
+    private Map<String, Object> expectedV1Car(Object id) throws Exception {
+        Map<String, Object> expected = objectMapper.readValue("{\"model\":\"Camry\",\"yearMade\":2020,\"owner\":{\"firstName\":\"Sten\",\"lastName\":\"Frisk\"},\"company\":\"Toyota\"}",
+                new TypeReference<HashMap<String, Object>>() {
+                });
+        expected.put("id", id);
+        return expected;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class VersionContextTest {
+    private final VersionResolutionStrategy<ApiVersion> versionResolutionStrategy =
+            new RequestHeaderVersionResolutionStrategy<>("API_VERSION", VersionLookupTable.forEnum(ApiVersion.class, false), VersioningMetrics.NOOP);
+    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+        executorService.shutdownNow();
+    }
+
+    @Test
+    void requestVersionIsPropagatedToWrappedExecutor() throws Exception {
+        bindRequest(ApiVersion.V2);
+        versionResolutionStrategy.getDeserializeToVersion(null);
+        Executor executor = VersionContext.wrap(executorService);
+
+        ApiVersion actual = CompletableFuture.supplyAsync(() -> versionResolutionStrategy.getSerializeToVersion(null), executor).get();
+
+        assertEquals(ApiVersion.V2, actual);
+    }
+
+    @Test
+    void explicitVersionTakesPrecedenceOverRequest() {
+        bindRequest(ApiVersion.V1);
+
+        VersionContext.forVersion(ApiVersion.V3).run(() ->
+                assertEquals(ApiVersion.V3, versionResolutionStrategy.getDeserializeToVersion(null)));
+        assertEquals(ApiVersion.V1, versionResolutionStrategy.getDeserializeToVersion(null));
+    }
+
+    @Test
+    void requestOfExecutingThreadIsNotPickedUp() throws Exception {
+        executorService.submit(() -> bindRequest(ApiVersion.V1)).get();
+        Executor executor = VersionContext.wrap(executorService);
+
+        ApiVersion actual = CompletableFuture.supplyAsync(() -> versionResolutionStrategy.getSerializeToVersion(null), executor).get();
+
+        assertNull(actual);
+    }
+
+    @Test
+    void capturedVersionOutlivesTheRequest() throws Exception {
+        ServletRequestAttributes requestAttributes = bindRequest(ApiVersion.V2);
+        versionResolutionStrategy.getDeserializeToVersion(null);
+        VersionContext.Snapshot snapshot = VersionContext.capture();
+        Callable<ApiVersion> task = snapshot.wrap(() -> versionResolutionStrategy.getSerializeToVersion(null));
+
+        requestAttributes.requestCompleted();
+        RequestContextHolder.resetRequestAttributes();
+
+        assertEquals(ApiVersion.V2, executorService.submit(task).get());
+    }
+
+    @Test
+    void unresolvedVersionIsNotCaptured() throws Exception {
+        ServletRequestAttributes requestAttributes = bindRequest(ApiVersion.V2);
+        VersionContext.Snapshot snapshot = VersionContext.capture();
+        Callable<ApiVersion> task = snapshot.wrap(() -> versionResolutionStrategy.getSerializeToVersion(null));
+
+        requestAttributes.requestCompleted();
+        RequestContextHolder.resetRequestAttributes();
+
+        assertNull(executorService.submit(task).get());
+    }
+
+    @Test
+    void converterResolvesVersionBeforeCapturing() throws Exception {
+        VersioningHttpMessageConverter converter = SpringVersioningModuleBuilder.withEnumVersions(ApiVersion.class)
+                .withVersionDeterminedByRequestHeader("API_VERSION")
+                .withConvertersCreatedByReflection()
+                .buildHttpMessageConverter(new ObjectMapper());
+        ServletRequestAttributes requestAttributes = bindRequest(ApiVersion.V1);
+        VersionContext.Snapshot snapshot = converter.captureVersionContext();
+        Callable<ApiVersion> task = snapshot.wrap(() -> versionResolutionStrategy.getSerializeToVersion(null));
+
+        requestAttributes.requestCompleted();
+        RequestContextHolder.resetRequestAttributes();
+
+        assertEquals(ApiVersion.V1, executorService.submit(task).get());
+    }
+
+    @Test
+    void capturedRejectionIsRethrown() {
+        bindRequest(null);
+        assertThrows(ResponseStatusException.class, () -> versionResolutionStrategy.getSerializeToVersion(null));
+        VersionContext.Snapshot snapshot = VersionContext.capture();
+        RequestContextHolder.resetRequestAttributes();
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> snapshot.call(() -> versionResolutionStrategy.getSerializeToVersion(null)));
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatus());
+    }
+
+    private static ServletRequestAttributes bindRequest(ApiVersion version) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        if (version != null) {
+            request.addHeader("API_VERSION", version.name());
+        }
+        ServletRequestAttributes requestAttributes = new ServletRequestAttributes(request);
+        RequestContextHolder.setRequestAttributes(requestAttributes);
+        return requestAttributes;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VersionLookupTableTest {
+
+    @Test
+    void lookupKnownVersions() {
+        VersionLookupTable<ApiVersion> versionLookupTable = VersionLookupTable.forEnum(ApiVersion.class, false);
+        for (ApiVersion version : ApiVersion.values()) {
+            assertEquals(version, versionLookupTable.lookup(version.name()));
+        }
+    }
+
+    @Test
+    void lookupUnknownVersions() {
+        VersionLookupTable<ApiVersion> versionLookupTable = VersionLookupTable.forEnum(ApiVersion.class, false);
+        assertNull(versionLookupTable.lookup("v1"));
+        assertNull(versionLookupTable.lookup("V4"));
+        assertNull(versionLookupTable.lookup(""));
+        assertNull(versionLookupTable.lookup("V1V1V1V1V1V1V1V1"));
+    }
+
+    @Test
+    void lookupCaseInsensitive() {
+        VersionLookupTable<ApiVersion> versionLookupTable = VersionLookupTable.forEnum(ApiVersion.class, true);
+        assertEquals(ApiVersion.V1, versionLookupTable.lookup("v1"));
+        assertEquals(ApiVersion.V3, versionLookupTable.lookup("V3"));
+        assertNull(versionLookupTable.lookup("w3"));
+    }
+
+    @Test
+    void lookupRanges() {
+        VersionLookupTable<ApiVersion> versionLookupTable = VersionLookupTable.forEnum(ApiVersion.class, false).withRanges();
+        assertEquals(ApiVersion.V2, versionLookupTable.lookup("V2"));
+        assertEquals(ApiVersion.V3, versionLookupTable.lookup(">=V1"));
+        assertEquals(ApiVersion.V2, versionLookupTable.lookup("V1-V2"));
+        assertEquals(ApiVersion.V2, versionLookupTable.lookup("V2 - V2"));
+        assertNull(versionLookupTable.lookup("V3-V1"));
+        assertNull(versionLookupTable.lookup(">=V4"));
+        assertNull(versionLookupTable.lookup("V1-V4"));
+        assertNull(versionLookupTable.lookup("-V1"));
+    }
+
+    @Test
+    void rangesIgnoringCase() {
+        VersionLookupTable<ApiVersion> versionLookupTable = VersionLookupTable.forEnum(ApiVersion.class, false).withRanges().caseInsensitive();
+        assertEquals(ApiVersion.V3, versionLookupTable.lookup(">=v2"));
+    }
+
+    @Test
+    void negotiatedRangesAreBounded() {
+        VersionLookupTable<ApiVersion> versionLookupTable = VersionLookupTable.forEnum(ApiVersion.class, false).withRanges();
+        for (int i = 0; i < 2 * VersionLookupTable.MAX_NEGOTIATED_RANGES; i++) {
+            assertNull(versionLookupTable.lookup(">=X" + i));
+        }
+        assertEquals(ApiVersion.V3, versionLookupTable.lookup(">=V2"));
+    }
+
+    @Test
+    void unknownRangesAreNotMemoized() {
+        VersionLookupTable<ApiVersion> versionLookupTable = VersionLookupTable.forEnum(ApiVersion.class, false).withRanges();
+        for (int i = 0; i < 2 * VersionLookupTable.MAX_NEGOTIATED_RANGES; i++) {
+            assertNull(versionLookupTable.lookup(UUID.randomUUID().toString()));
+            assertNull(versionLookupTable.lookup("V1-X" + i));
+        }
+        assertEquals(0, versionLookupTable.negotiatedRangeCount());
+
+        assertEquals(ApiVersion.V2, versionLookupTable.lookup("V1-V2"));
+        assertTrue(versionLookupTable.isNegotiated("V1-V2"));
+        assertEquals(ApiVersion.V2, versionLookupTable.lookup("V1-V2"));
+    }
+
+    @Test
+    void leastRecentlyUsedRangesAreEvicted() {
+        VersionLookupTable<ApiVersion> versionLookupTable = VersionLookupTable.forEnum(ApiVersion.class, false).withRanges();
+        assertEquals(ApiVersion.V3, versionLookupTable.lookup("V2-V3"));
+        for (int i = 1; i <= VersionLookupTable.MAX_NEGOTIATED_RANGES; i++) {
+            String padded = "V1" + String.join("", Collections.nCopies(i, " ")) + "-V2";
+            assertEquals(ApiVersion.V2, versionLookupTable.lookup(padded));
+            assertEquals(ApiVersion.V3, versionLookupTable.lookup("V2-V3"));
+        }
+
+        assertEquals(VersionLookupTable.MAX_NEGOTIATED_RANGES, versionLookupTable.negotiatedRangeCount());
+        assertTrue(versionLookupTable.isNegotiated("V2-V3"));
+        assertFalse(versionLookupTable.isNegotiated("V1 -V2"));
+    }
+
+    @Test
+    void rangesRequireKnownVersions() {
+        assertThrows(IllegalStateException.class, () -> VersionLookupTable.of(new EnumVersionsDescription<>(ApiVersion.class), Collections.<ApiVersion>emptyList(), false).withRanges());
+    }
+
+    @Test
+    void caseInsensitivityRequiresKnownVersions() {
+        EnumVersionsDescription<ApiVersion> versionsDescription = new EnumVersionsDescription<>(ApiVersion.class);
+        assertThrows(IllegalStateException.class, () -> VersionLookupTable.of(versionsDescription, Collections.<ApiVersion>emptyList(), true));
+        assertThrows(IllegalStateException.class, () -> VersionLookupTable.of(versionsDescription, Collections.<ApiVersion>emptyList(), false).caseInsensitive());
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VersionObjectMapperTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final VersioningHttpMessageConverter converter = SpringVersioningModuleBuilder.withEnumVersions(ApiVersion.class)
+            .withVersionDeterminedByRequestHeader("API_VERSION")
+            .withConvertersCreatedByReflection()
+            .buildHttpMessageConverter(objectMapper);
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void latestVersionUsesGivenObjectMapper() {
+        assertSame(objectMapper, converter.getObjectMapper(ApiVersion.V3));
+    }
+
+    @Test
+    void historicVersionsHaveObjectMappersOfTheirOwn() {
+        ObjectMapper v1 = converter.getObjectMapper(ApiVersion.V1);
+        ObjectMapper v2 = converter.getObjectMapper(ApiVersion.V2);
+
+        assertNotSame(objectMapper, v1);
+        assertNotSame(converter.getObjectMapper(), v1);
+        assertNotSame(v1, v2);
+        assertSame(v1, converter.getObjectMapper(ApiVersion.V1));
+    }
+
+    @Test
+    void versionsNotKnownUpFrontShareTheVersioningObjectMapper() {
+        VersioningHttpMessageConverter customVersionsConverter = SpringVersioningModuleBuilder.withCustomVersions(new EnumVersionsDescription<>(ApiVersion.class))
+                .withVersionDeterminedByRequestHeader("API_VERSION")
+                .withConvertersCreatedByReflection()
+                .buildHttpMessageConverter(objectMapper);
+
+        assertSame(customVersionsConverter.getObjectMapper(), customVersionsConverter.getObjectMapper(ApiVersion.V1));
+        assertSame(customVersionsConverter.getObjectMapper(), customVersionsConverter.getObjectMapper(ApiVersion.V3));
+    }
+
+    @Test
+    void writesWithObjectMapperOfRequestedVersion() throws Exception {
+        Car car = new Car();
+        car.setMake("Volvo");
+
+        String v1 = write(car, ApiVersion.V1);
+        String v3 = write(car, ApiVersion.V3);
+
+        assertTrue(v1.contains("\"company\":\"Volvo\""), v1);
+        assertFalse(v1.contains("\"make\""), v1);
+        assertTrue(v3.contains("\"make\":\"Volvo\""), v3);
+    }
+
+    @Test
+    void readsWithObjectMapperOfRequestedVersion() throws Exception {
+        bindRequest(ApiVersion.V1);
+        MockHttpInputMessage inputMessage = new MockHttpInputMessage("{\"company\":\"Volvo\"}".getBytes(StandardCharsets.UTF_8));
+        inputMessage.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+
+        Car car = (Car) converter.read(Car.class, null, inputMessage);
+
+        assertEquals("Volvo", car.getMake());
+    }
+
+    private String write(Car car, ApiVersion version) throws Exception {
+        bindRequest(version);
+        MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+        converter.write(car, Car.class, MediaType.APPLICATION_JSON, outputMessage);
+        return outputMessage.getBodyAsString(StandardCharsets.UTF_8);
+    }
+
+    private static void bindRequest(ApiVersion version) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("API_VERSION", version.name());
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@Import({TestApplication.class, VersionResolvedOncePerRequestTest.TestConfig.class})
+@SpringBootTest
+@AutoConfigureMockMvc
+class VersionResolvedOncePerRequestTest {
+    private static final String ATTRIBUTE_NAME = AbstractRequestVersionResolutionStrategy.ATTRIBUTE_PREFIX + "RequestHeaderVersionResolutionStrategy.API_VERSION";
+
+    @TestConfiguration
+    static class TestConfig {
+        @Bean
+        CountingVersioningMetrics countingVersioningMetrics() {
+            return new CountingVersioningMetrics();
+        }
+
+        @Bean
+        ObjectMapper resolvedOnceObjectMapper(ApplicationContext applicationContext, CountingVersioningMetrics countingVersioningMetrics) {
+            VersioningModule versioningModule = SpringVersioningModuleBuilder.withEnumVersions(ApiVersion.class)
+                    .withVersionDeterminedByRequestHeader("API_VERSION")
+                    .withConvertersFromApplicationContext(applicationContext)
+                    .withMetrics(countingVersioningMetrics)
+                    .build();
+            return new ObjectMapper().registerModule(versioningModule);
+        }
+    }
+
+    static class CountingVersioningMetrics implements VersioningMetrics {
+        final AtomicInteger resolved = new AtomicInteger();
+        final AtomicInteger rejected = new AtomicInteger();
+
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        public void versionResolved(Object version) {
+            resolved.incrementAndGet();
+        }
+
+        @Override
+        public void versionRejected(String reason) {
+            rejected.incrementAndGet();
+        }
+
+        @Override
+        public void serialized(Class<?> type, Object fromVersion, Object toVersion, long nanos) {
+        }
+
+        @Override
+        public void deserialized(Class<?> type, Object fromVersion, Object toVersion, long nanos) {
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private CarController carController;
+    @Autowired
+    private CountingVersioningMetrics countingVersioningMetrics;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 2; i++) {
+            Car car = new Car();
+            car.setMake("Volvo");
+            carController.addCar(car);
+        }
+        countingVersioningMetrics.resolved.set(0);
+        countingVersioningMetrics.rejected.set(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        carController.reset();
+    }
+
+    @Test
+    void versionIsResolvedOncePerRequest() throws Exception {
+        MvcResult result = mockMvc.perform(get("/cars").header("API_VERSION", "V1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].company").value("Toyota"))
+                .andExpect(jsonPath("$[2].company").value("Volvo"))
+                .andReturn();
+
+        assertEquals(1, countingVersioningMetrics.resolved.get());
+        assertEquals(ApiVersion.V1, result.getRequest().getAttribute(ATTRIBUTE_NAME));
+    }
+
+    @Test
+    void eachRequestResolvesItsOwnVersion() throws Exception {
+        mockMvc.perform(get("/cars").header("API_VERSION", "V1"))
+                .andExpect(jsonPath("$[0].company").value("Toyota"));
+        mockMvc.perform(get("/cars").header("API_VERSION", "V3"))
+                .andExpect(jsonPath("$[0].make").value("Toyota"));
+
+        assertEquals(2, countingVersioningMetrics.resolved.get());
+    }
+
+    @Test
+    void rejectedVersionIsReportedOncePerRequest() throws Exception {
+        mockMvc.perform(get("/cars").header("API_VERSION", "V9"))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(0, countingVersioningMetrics.resolved.get());
+        assertEquals(1, countingVersioningMetrics.rejected.get());
+    }
+}
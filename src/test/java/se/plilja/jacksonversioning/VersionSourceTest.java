@@ -0,0 +1,90 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class VersionSourceTest {
+    private final VersionLookupTable<ApiVersion> versionLookupTable = VersionLookupTable.forEnum(ApiVersion.class, true);
+
+    @Test
+    void pathSegment() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v2/cars/1");
+        assertEquals(ApiVersion.V2, VersionSource.pathSegment().resolve(request, versionLookupTable));
+        request.setRequestURI("/cars/1");
+        assertNull(VersionSource.pathSegment().resolve(request, versionLookupTable));
+        request.setRequestURI("/");
+        assertNull(VersionSource.pathSegment().resolve(request, versionLookupTable));
+    }
+
+    @Test
+    void pathSegmentOnlyLooksAtItsIndex() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/cars/v1/1");
+        assertNull(VersionSource.pathSegment().resolve(request, versionLookupTable));
+        request.setRequestURI("/api/v2/cars/1");
+        assertNull(VersionSource.pathSegment().resolve(request, versionLookupTable));
+        assertEquals(ApiVersion.V2, VersionSource.pathSegment(1).resolve(request, versionLookupTable));
+        request.setRequestURI("/api");
+        assertNull(VersionSource.pathSegment(1).resolve(request, versionLookupTable));
+    }
+
+    @Test
+    void pathSegmentIgnoresContextPath() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v1/cars");
+        request.setContextPath("/v1");
+        assertNull(VersionSource.pathSegment().resolve(request, versionLookupTable));
+    }
+
+    @Test
+    void unknownHeaderIsRejected() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/cars");
+        request.addHeader("API_VERSION", "V9");
+        assertThrows(UnknownApiVersionException.class, () -> VersionSource.requestHeader("API_VERSION").resolve(request, versionLookupTable));
+    }
+
+    @Test
+    void firstSourceWithVersionWins() {
+        CompositeVersionResolutionStrategy<ApiVersion> strategy = new CompositeVersionResolutionStrategy<>(
+                Arrays.asList(VersionSource.requestHeader("API_VERSION"), VersionSource.requestParameter("apiVersion"), VersionSource.defaultVersion("V1")),
+                versionLookupTable, VersioningMetrics.NOOP);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/cars");
+        assertEquals(ApiVersion.V1, strategy.resolveVersion(request));
+        request.addParameter("apiVersion", "V2");
+        assertEquals(ApiVersion.V2, strategy.resolveVersion(request));
+        request.addHeader("API_VERSION", "V3");
+        assertEquals(ApiVersion.V3, strategy.resolveVersion(request));
+    }
+
+    @Test
+    void unknownDefaultVersionFailsWhenBuilding() {
+        assertThrows(IllegalArgumentException.class, () -> new CompositeVersionResolutionStrategy<>(
+                Arrays.asList(VersionSource.defaultVersion("V9")), versionLookupTable, VersioningMetrics.NOOP));
+    }
+}
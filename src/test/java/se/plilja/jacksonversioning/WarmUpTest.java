@@ -0,0 +1,83 @@
+/*
+ * The MIT License
+ * Copyright © 2020 Patrik Lilja
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package se.plilja.jacksonversioning;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.GenericApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class WarmUpTest {
+
+    @Test
+    void warmUpMessageConverter() {
+        assertNotNull(SpringVersioningModuleBuilder.withEnumVersions(ApiVersion.class)
+                .withVersionDeterminedByRequestHeader("API_VERSION")
+                .withConvertersCreatedByReflection()
+                .withPreloadedConverters("se.plilja.jacksonversioning")
+                .withWarmUp(10)
+                .buildHttpMessageConverter(new ObjectMapper()));
+    }
+
+    @Test
+    void warmUpModule() {
+        assertNotNull(SpringVersioningModuleBuilder.withEnumVersions(ApiVersion.class)
+                .withVersionDeterminedByRequestHeader("API_VERSION")
+                .withConvertersCreatedByReflection()
+                .withPreloadedConverters("se.plilja.jacksonversioning")
+                .withWarmUp(1)
+                .build());
+    }
+
+    @Test
+    void failingConverterFailsTheBuild() {
+        PersonConverter failingConverter = mock(PersonConverter.class, invocation -> {
+            throw new IllegalArgumentException("Failing converter");
+        });
+        GenericApplicationContext applicationContext = new GenericApplicationContext();
+        applicationContext.registerBean(CarConverter.class);
+        applicationContext.registerBean(PersonConverter.class, () -> failingConverter);
+        applicationContext.refresh();
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> SpringVersioningModuleBuilder.withEnumVersions(ApiVersion.class)
+                .withVersionDeterminedByRequestHeader("API_VERSION")
+                .withConvertersFromApplicationContext(applicationContext)
+                .withPreloadedConverters("se.plilja.jacksonversioning")
+                .withWarmUp(1)
+                .build());
+        assertTrue(e.getMessage().startsWith("Unable to convert " + Person.class.getName()), e.getMessage());
+    }
+
+    @Test
+    void warmUpRequiresKnownVersionedClasses() {
+        assertThrows(IllegalStateException.class, () -> SpringVersioningModuleBuilder.withEnumVersions(ApiVersion.class)
+                .withVersionDeterminedByRequestHeader("API_VERSION")
+                .withConvertersCreatedByReflection()
+                .withWarmUp(1)
+                .build());
+    }
+}